@@ -4,6 +4,7 @@ plugins {
     id("jacoco")
     id("com.diffplug.spotless") version "6.25.0"
     id("io.freefair.lombok") version "8.11"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.voegl.analogkey4j"
@@ -70,6 +71,18 @@ tasks.test {
     finalizedBy(tasks.jacocoTestReport)
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    // throughput plus sampled latencies for percentiles, allocation rates from the gc profiler
+    benchmarkMode.set(listOf("thrpt", "sample"))
+    timeUnit.set("us")
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
+
 publishing {
     publications {
         create<MavenPublication>("maven") {
@@ -0,0 +1,88 @@
+package org.voegl.analogkey4j.event;
+
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.voegl.analogkey4j.key.HidKeyMap;
+import org.voegl.analogkey4j.parser.HidParser;
+import org.voegl.analogkey4j.parser.SyntheticReports;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+
+/** Measures firing key events to listeners that do nothing with them. */
+@State(Scope.Thread)
+public class AnalogKeyboardListenerListBenchmark {
+
+  private static final int REPORTS = 256;
+
+  @Param({"INLINE", "ASYNC"})
+  private DispatchMode dispatchMode;
+
+  @Param({"BLOCK", "DROP_OLDEST", "COALESCE"})
+  private OverflowPolicy overflowPolicy;
+
+  @Param({"1", "4"})
+  private int listenerCount;
+
+  private final AnalogKeyboardListenerList listeners = new AnalogKeyboardListenerList();
+  private final AnalogKeySnapshot[] snapshots = new AnalogKeySnapshot[REPORTS];
+  private AnalogKeyboardListener[] added;
+  private int index;
+
+  /** A listener ignoring all events. */
+  private static class NoOpListener implements AnalogKeyboardListener {
+    @Override
+    public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {}
+
+    @Override
+    public void keyPressed(AnalogKeyboardDevice keyboard, Set<AnalogKeyState> keyStates) {}
+
+    @Override
+    public void keyboardAdded(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardRemoved(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardOpened(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardClosed(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardError(AnalogKeyboardDevice keyboard, String message) {}
+  }
+
+  @Setup
+  public void setup() {
+    byte[][] reports = SyntheticReports.create(4, SyntheticReports.Pattern.CHURN, REPORTS);
+    HidParser parser = new HidParser(HidKeyMap.getInstance());
+    for (int i = 0; i < REPORTS; i++) {
+      snapshots[i] = parser.parseSnapshot(reports[i], SyntheticReports.REPORT_SIZE).copy();
+    }
+
+    ListenerOptions options =
+        ListenerOptions.builder().dispatchMode(dispatchMode).overflowPolicy(overflowPolicy).build();
+    added = new AnalogKeyboardListener[listenerCount];
+    for (int i = 0; i < listenerCount; i++) {
+      added[i] = new NoOpListener();
+      listeners.add(added[i], options);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (AnalogKeyboardListener listener : added) {
+      listeners.remove(listener);
+    }
+  }
+
+  @Benchmark
+  public void fireKeysChanged() {
+    index = (index + 1) & (REPORTS - 1);
+    listeners.fireKeysChanged(null, snapshots[index]);
+  }
+}
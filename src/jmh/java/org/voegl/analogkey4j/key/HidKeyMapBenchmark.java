@@ -0,0 +1,27 @@
+package org.voegl.analogkey4j.key;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures translating HID key codes into {@link HidKey}s and back. */
+@State(Scope.Thread)
+public class HidKeyMapBenchmark {
+
+  private final HidKeyMap keyMap = HidKeyMap.getInstance();
+  private final HidKey[] keys = HidKey.values();
+  private int code;
+  private int key;
+
+  @Benchmark
+  public HidKey getKey() {
+    code = (code + 1) & 0xFF;
+    return keyMap.getKey((byte) code);
+  }
+
+  @Benchmark
+  public int getCode() {
+    key = key + 1 == keys.length ? 0 : key + 1;
+    return keyMap.getCode(keys[key]);
+  }
+}
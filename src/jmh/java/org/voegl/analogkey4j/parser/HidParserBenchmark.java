@@ -0,0 +1,49 @@
+package org.voegl.analogkey4j.parser;
+
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.event.AnalogKeyState;
+import org.voegl.analogkey4j.key.HidKeyMap;
+
+/** Measures parsing a single report with the primitive and the {@link Set} based API. */
+@State(Scope.Thread)
+public class HidParserBenchmark {
+
+  private static final int REPORTS = 256;
+
+  @Param({"0", "1", "4", "16"})
+  private int keysPressed;
+
+  @Param({"HELD", "RAMP", "CHURN"})
+  private SyntheticReports.Pattern pattern;
+
+  private byte[][] reports;
+  private HidParser parser;
+  private int index;
+
+  @Setup
+  public void setup() {
+    reports = SyntheticReports.create(keysPressed, pattern, REPORTS);
+    parser = new HidParser(HidKeyMap.getInstance());
+  }
+
+  private byte[] nextReport() {
+    index = (index + 1) & (REPORTS - 1);
+    return reports[index];
+  }
+
+  @Benchmark
+  public AnalogKeySnapshot parseSnapshot() {
+    return parser.parseSnapshot(nextReport(), SyntheticReports.REPORT_SIZE);
+  }
+
+  @Benchmark
+  public Set<AnalogKeyState> parse() {
+    return parser.parse(nextReport(), SyntheticReports.REPORT_SIZE);
+  }
+}
@@ -0,0 +1,58 @@
+package org.voegl.analogkey4j.parser;
+
+/**
+ * Generates synthetic HID reports in the format used by Wooting keyboards, a sequence of {@code
+ * (type, key code, value)} triples terminated by a zero key code.
+ */
+public final class SyntheticReports {
+
+  /** The length of the generated reports in bytes. */
+  public static final int REPORT_SIZE = 64;
+
+  /* the letters, digits and modifiers, so every code is known by the default key map */
+  private static final int[] KEY_CODES = {
+    0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0a, 0x0b, 0x0c, 0x0d, 0x0e, 0x0f, 0x10, 0x11, 0x12, 0x13,
+    0x14, 0x15, 0x16, 0x17, 0x18, 0x19, 0x1a, 0x1b, 0x1c, 0x1d, 0x1e, 0x1f, 0x20, 0x21, 0x22, 0x23,
+    0xe0, 0xe1, 0xe2, 0xe3, 0xe4, 0xe5, 0xe6, 0xe7
+  };
+
+  /** The way pressed keys and their values change from one report to the next. */
+  public enum Pattern {
+    /** The same keys are held with the same values. */
+    HELD,
+    /** The same keys are held while their values ramp up and down. */
+    RAMP,
+    /** Different keys are pressed with every report. */
+    CHURN
+  }
+
+  /** Class must not be instantiated. */
+  private SyntheticReports() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Creates a sequence of synthetic reports.
+   *
+   * @param keysPressed The number of keys pressed in each report, at most 16.
+   * @param pattern The way the pressed keys change from one report to the next.
+   * @param count The number of reports to create.
+   * @return The reports, each {@link #REPORT_SIZE} bytes long.
+   */
+  public static byte[][] create(int keysPressed, Pattern pattern, int count) {
+    if (keysPressed < 0 || keysPressed * 3 >= REPORT_SIZE) {
+      throw new IllegalArgumentException("Invalid number of keys " + keysPressed);
+    }
+    byte[][] reports = new byte[count][REPORT_SIZE];
+    for (int r = 0; r < count; r++) {
+      for (int k = 0; k < keysPressed; k++) {
+        int code = KEY_CODES[(k + (pattern == Pattern.CHURN ? r : 0)) % KEY_CODES.length];
+        int value = pattern == Pattern.HELD ? 0xFF : 1 + (r * 7 + k * 13) % 0xFF;
+        reports[r][k * 3] = 0;
+        reports[r][k * 3 + 1] = (byte) code;
+        reports[r][k * 3 + 2] = (byte) value;
+      }
+    }
+    return reports;
+  }
+}
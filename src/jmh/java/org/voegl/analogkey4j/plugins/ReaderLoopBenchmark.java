@@ -0,0 +1,88 @@
+package org.voegl.analogkey4j.plugins;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
+import org.voegl.analogkey4j.key.HidKeyMap;
+import org.voegl.analogkey4j.parser.HidParser;
+import org.voegl.analogkey4j.parser.SyntheticReports;
+import org.voegl.analogkey4j.transport.SyntheticTransport;
+
+/**
+ * Measures the work the {@link AnalogKeyboardDevice} reader thread does per report: reading it from
+ * a {@link SyntheticTransport}, parsing it, stamping it, recording metrics, updating the key state
+ * table and firing the changed keys.
+ */
+@State(Scope.Thread)
+public class ReaderLoopBenchmark {
+
+  private static final int REPORTS = 256;
+
+  @Param({"0", "1", "4", "16"})
+  private int keysPressed;
+
+  @Param({"HELD", "RAMP", "CHURN"})
+  private SyntheticReports.Pattern pattern;
+
+  private final byte[] buffer = new byte[SyntheticReports.REPORT_SIZE];
+  private AnalogKeyboardDevice device;
+  private ParkedReaderPool pool;
+
+  /** A reader pool that holds the turn of the device, so the benchmark thread reads instead. */
+  private static class ParkedReaderPool extends ReaderPool {
+    private Runnable turn;
+
+    ParkedReaderPool() {
+      super(1);
+    }
+
+    @Override
+    void execute(Runnable turn) {
+      this.turn = turn;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    SyntheticTransport transport =
+        SyntheticTransport.builder()
+            .vendorId(0x31e3)
+            .productId(0x1402)
+            .usagePage(0xffffff54)
+            .reportSize(SyntheticReports.REPORT_SIZE)
+            .generator(
+                SyntheticTransport.ReportGenerator.cycling(
+                    SyntheticReports.create(keysPressed, pattern, REPORTS)))
+            .build();
+    SimpleAnalogKeyboard keyboard =
+        new SimpleAnalogKeyboard(
+            "Wooting 80HE", 0x31e3, 0x1402, 0xffffff54, SyntheticReports.REPORT_SIZE);
+    device =
+        new PluginDevice(
+            keyboard,
+            transport,
+            () -> new HidParser(HidKeyMap.getInstance()),
+            new AnalogKeyboardListenerList());
+    pool = new ParkedReaderPool();
+    device.setOptions(AnalogKeyboardOptions.builder().readerMode(ReaderMode.SHARED_POOL).build());
+    device.setReaderPool(pool);
+    device.open();
+  }
+
+  @TearDown
+  public void tearDown() {
+    device.close();
+    // the held turn notices the close and closes the device
+    pool.turn.run();
+    pool.close();
+  }
+
+  @Benchmark
+  public int readReport() {
+    return device.readReport(buffer, 0);
+  }
+}
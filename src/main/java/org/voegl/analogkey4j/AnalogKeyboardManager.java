@@ -1,11 +1,43 @@
 package org.voegl.analogkey4j;
 
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import org.voegl.analogkey4j.event.AnalogKeyboardListener;
 import org.voegl.analogkey4j.event.HidServicesListenerImpl;
+import org.voegl.analogkey4j.event.ListenerOptions;
+import org.voegl.analogkey4j.event.MergeMode;
+import org.voegl.analogkey4j.event.MergedKeyboardView;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.metrics.MetricsMXBean;
+import org.voegl.analogkey4j.metrics.MetricsSnapshot;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardOptions;
+import org.voegl.analogkey4j.record.ReportRecorder;
+import org.voegl.analogkey4j.transport.HidTransport;
 
 public class AnalogKeyboardManager {
 
-  private final HidServicesListenerImpl hidServicesListener = new HidServicesListenerImpl();
+  private final HidServicesListenerImpl hidServicesListener;
+  private ObjectName metricsName;
+
+  /** Constructs a new manager reading keyboards with the default options. */
+  public AnalogKeyboardManager() {
+    this(AnalogKeyboardOptions.DEFAULT);
+  }
+
+  /**
+   * Constructs a new manager reading keyboards with the given options.
+   *
+   * @param options The options describing how keyboards are read.
+   */
+  public AnalogKeyboardManager(AnalogKeyboardOptions options) {
+    hidServicesListener = new HidServicesListenerImpl(options);
+  }
 
   /**
    * Starts the HidServices and initializes attached devices. This method configures the HID
@@ -16,12 +48,24 @@ public class AnalogKeyboardManager {
     hidServicesListener.start();
   }
 
+  /**
+   * Opens all attached analog keyboards that are closed. The keyboards are opened concurrently, and
+   * a keyboard that cannot be opened is reported through an error event.
+   *
+   * @return A {@link CompletableFuture} completed with the keyboards that have been opened.
+   */
+  public CompletableFuture<Set<AnalogKeyboardDevice>> openAll() {
+    return hidServicesListener.openAll();
+  }
+
   /**
    * Stops the HidServices and closes any active analog keyboard devices. This method ensures all
-   * devices are properly closed and sends close and remove events accordingly.
+   * devices are properly closed and sends close and remove events accordingly. It waits at most the
+   * configured {@link AnalogKeyboardOptions#getCloseTimeout()} for the devices to close.
    */
   public void stop() {
     hidServicesListener.stop();
+    unregisterMetricsMBean();
   }
 
   /**
@@ -33,12 +77,152 @@ public class AnalogKeyboardManager {
     hidServicesListener.addListener(listener);
   }
 
+  /**
+   * Adds an event listener to the list of event listeners. The options allow choosing how events
+   * are buffered for the listener and what happens if it falls behind.
+   *
+   * @param listener The event listener to be added.
+   * @param options The options describing how events are delivered to the listener.
+   */
+  public void addListener(AnalogKeyboardListener listener, ListenerOptions options) {
+    hidServicesListener.addListener(listener, options);
+  }
+
   /**
    * Removes an event listener to the list of event listeners.
    *
    * @param listener The event listener to be removed.
    */
   public void removeListener(AnalogKeyboardListener listener) {
-    hidServicesListener.addListener(listener);
+    hidServicesListener.removeListener(listener);
+  }
+
+  /**
+   * Attaches a device that is not discovered through the HID services, for example a {@link
+   * org.voegl.analogkey4j.transport.SyntheticTransport} generating reports for load tests. This
+   * works whether the manager has been started or not.
+   *
+   * @param transport The transport of the device to attach.
+   * @return An {@link Optional} containing the analog keyboard, or an empty {@link Optional} if no
+   *     plugin supports the device.
+   */
+  public Optional<AnalogKeyboardDevice> attach(HidTransport transport) {
+    return hidServicesListener.attach(transport);
+  }
+
+  /**
+   * Detaches a device previously attached using {@link #attach(HidTransport)}, closing it if it is
+   * still open.
+   *
+   * @param keyboard The analog keyboard to detach.
+   */
+  public void detach(AnalogKeyboardDevice keyboard) {
+    hidServicesListener.detach(keyboard);
+  }
+
+  /**
+   * Starts or stops recording the raw reports of all current and future analog keyboards. A
+   * recording can be replayed by attaching the transports of a {@link
+   * org.voegl.analogkey4j.record.ReportRecording}. The recorder stays owned by the caller and must
+   * be closed after recording is stopped.
+   *
+   * @param recorder The recorder to append the reports to, or {@code null} to stop recording.
+   */
+  public void setRecorder(ReportRecorder recorder) {
+    hidServicesListener.setRecorder(recorder);
+  }
+
+  /**
+   * Creates a view merging the keys of all attached keyboards into a single logical keyboard, for
+   * setups with several keyboards or keypads. The view is updated without locks by the reader
+   * threads of the keyboards, it can be polled and delivers merged key events to its own listeners.
+   * It must be closed once it is no longer used.
+   *
+   * @param mode How the values of a key on several keyboards are merged.
+   * @return The merged view.
+   */
+  public MergedKeyboardView createMergedView(MergeMode mode) {
+    return hidServicesListener.createMergedView(mode);
+  }
+
+  /**
+   * Takes a snapshot of the metrics of all attached keyboards and all listeners. The metrics show
+   * where input lag comes from: the report rate and parse time of each keyboard, and the queue
+   * depth, delivery latency and callback time of each listener.
+   *
+   * @return The snapshot of the metrics.
+   */
+  public MetricsSnapshot getMetrics() {
+    return hidServicesListener.getMetrics();
+  }
+
+  /**
+   * Registers a {@link MetricsMXBean} exposing the metrics of this manager with the platform MBean
+   * server. It is unregistered when the manager is stopped.
+   *
+   * @return The name the MBean has been registered with.
+   * @throws IllegalStateException If the MBean could not be registered.
+   */
+  public synchronized ObjectName registerMetricsMBean() {
+    if (metricsName != null) {
+      return metricsName;
+    }
+    try {
+      ObjectName name =
+          new ObjectName("org.voegl.analogkey4j:type=Metrics,id=" + System.identityHashCode(this));
+      MetricsMXBean bean = this::getMetrics;
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(new StandardMBean(bean, MetricsMXBean.class, true), name);
+      metricsName = name;
+      return name;
+    } catch (JMException e) {
+      throw new IllegalStateException("Metrics MBean could not be registered", e);
+    }
+  }
+
+  /** Unregisters the {@link MetricsMXBean} of this manager, if it has been registered. */
+  public synchronized void unregisterMetricsMBean() {
+    if (metricsName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+    } catch (JMException e) {
+      // already unregistered by someone else
+    }
+    metricsName = null;
+  }
+
+  /**
+   * Gets all supported analog keyboards that are currently attached.
+   *
+   * @return A {@link Set} of the attached analog keyboards.
+   */
+  public Set<AnalogKeyboardDevice> getKeyboards() {
+    return Set.copyOf(hidServicesListener.getKeyboardDevices());
+  }
+
+  /**
+   * Gets the current pressed amount of a key of an analog keyboard. This polls the keyboard's
+   * current state, so it works without any listener and does not allocate.
+   *
+   * @param keyboard The keyboard to get the value for.
+   * @param key The key to get the value for.
+   * @return The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public float getValue(AnalogKeyboardDevice keyboard, HidKey key) {
+    return keyboard.getValue(key);
+  }
+
+  /**
+   * Copies the current pressed amount of all keys of an analog keyboard into an array indexed by
+   * {@link HidKey#ordinal()}. This polls the keyboard's current state, so it works without any
+   * listener and does not allocate.
+   *
+   * @param keyboard The keyboard to read the values of.
+   * @param out The array to copy into, it must hold at least one value per {@link HidKey}.
+   */
+  public void readAll(AnalogKeyboardDevice keyboard, float[] out) {
+    keyboard.readAll(out);
   }
 }
@@ -0,0 +1,442 @@
+package org.voegl.analogkey4j.event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.voegl.analogkey4j.key.HidKey;
+
+/**
+ * A reusable, primitive representation of an analog keyboard's key states. Values are stored in a
+ * {@code float[]} indexed by {@link HidKey#ordinal()} and the keys that changed with the latest
+ * report are tracked in a bitmask, so reading a snapshot does not allocate. If key profiles are
+ * configured, a snapshot also holds the digital actuation state of every key and the keys whose
+ * actuation state changed with the latest report.
+ *
+ * <p>Every snapshot is stamped with the {@link System#nanoTime()} its report has been read at and
+ * the sequence number of the report, so listeners can measure how old an event is and detect
+ * reports that have been coalesced or dropped.
+ *
+ * <p>Snapshots handed to listeners are owned by the library and are only valid for the duration of
+ * the callback. Use {@link #copy()} or {@link #copyFrom(AnalogKeySnapshot)} to retain one.
+ */
+public final class AnalogKeySnapshot {
+  private static final HidKey[] KEYS = HidKey.values();
+
+  /** The number of keys a snapshot holds a value for. */
+  public static final int KEY_COUNT = KEYS.length;
+
+  /* the number of words in the changed keys bitmask */
+  static final int WORD_COUNT = (KEY_COUNT + 63) >>> 6;
+
+  private final float[] values = new float[KEY_COUNT];
+  private final long[] changed = new long[WORD_COUNT];
+  private final long[] actuated = new long[WORD_COUNT];
+  private final long[] toggled = new long[WORD_COUNT];
+  private long timestamp;
+  private long sequence;
+  private Set<AnalogKeyState> keyStates;
+
+  /**
+   * Gets the current pressed amount of a key.
+   *
+   * @param key The key to get the value for.
+   * @return The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public float getValue(HidKey key) {
+    return values[key.ordinal()];
+  }
+
+  /**
+   * Gets the current pressed amount of a key by its {@link HidKey#ordinal()}.
+   *
+   * @param ordinal The ordinal of the key to get the value for.
+   * @return The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public float getValue(int ordinal) {
+    return values[ordinal];
+  }
+
+  /**
+   * Checks whether a key has changed with the latest report.
+   *
+   * @param key The key to check.
+   * @return {@code true} if the key has changed, {@code false} otherwise.
+   */
+  public boolean isChanged(HidKey key) {
+    int ordinal = key.ordinal();
+    return (changed[ordinal >>> 6] & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Checks whether a key is actuated. Keys are only actuated if key profiles are configured, which
+   * define the actuation point of every key.
+   *
+   * @param key The key to check.
+   * @return {@code true} if the key is actuated, {@code false} otherwise.
+   */
+  public boolean isActuated(HidKey key) {
+    return isActuated(key.ordinal());
+  }
+
+  /**
+   * Checks whether a key is actuated by its {@link HidKey#ordinal()}.
+   *
+   * @param ordinal The ordinal of the key to check.
+   * @return {@code true} if the key is actuated, {@code false} otherwise.
+   */
+  public boolean isActuated(int ordinal) {
+    return (actuated[ordinal >>> 6] & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Checks whether a key has been actuated with the latest report.
+   *
+   * @param key The key to check.
+   * @return {@code true} if the key went down, {@code false} otherwise.
+   */
+  public boolean isKeyDown(HidKey key) {
+    int ordinal = key.ordinal();
+    return (toggled[ordinal >>> 6] & actuated[ordinal >>> 6] & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Checks whether a key has been released with the latest report.
+   *
+   * @param key The key to check.
+   * @return {@code true} if the key went up, {@code false} otherwise.
+   */
+  public boolean isKeyUp(HidKey key) {
+    int ordinal = key.ordinal();
+    return (toggled[ordinal >>> 6] & ~actuated[ordinal >>> 6] & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Checks whether any key has been actuated or released with the latest report.
+   *
+   * @return {@code true} if at least one key went down or up, {@code false} otherwise.
+   */
+  public boolean hasActuationChanges() {
+    for (long word : toggled) {
+      if (word != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the next key that has been actuated or released starting at the given ordinal, which
+   * works like {@link #nextChanged(int)}. Whether the key went down or up is told by {@link
+   * #isActuated(int)}.
+   *
+   * @param fromOrdinal The ordinal to start searching at (inclusive).
+   * @return The ordinal of the next actuated or released key, or {@code -1} if there is none.
+   */
+  public int nextActuationChange(int fromOrdinal) {
+    return next(toggled, fromOrdinal);
+  }
+
+  /**
+   * Checks whether any key has changed with the latest report.
+   *
+   * @return {@code true} if at least one key has changed, {@code false} otherwise.
+   */
+  public boolean hasChanges() {
+    for (long word : changed) {
+      if (word != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the number of keys that have changed with the latest report.
+   *
+   * @return The number of changed keys.
+   */
+  public int getChangedCount() {
+    int count = 0;
+    for (long word : changed) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /**
+   * Finds the next changed key starting at the given ordinal. Iterating the changed keys is done
+   * with {@code for (int i = s.nextChanged(0); i >= 0; i = s.nextChanged(i + 1))}.
+   *
+   * @param fromOrdinal The ordinal to start searching at (inclusive).
+   * @return The ordinal of the next changed key, or {@code -1} if there is none.
+   */
+  public int nextChanged(int fromOrdinal) {
+    return next(changed, fromOrdinal);
+  }
+
+  /**
+   * Finds the next set bit of a bitmask starting at the given ordinal.
+   *
+   * @param mask The bitmask to search.
+   * @param fromOrdinal The ordinal to start searching at (inclusive).
+   * @return The ordinal of the next set bit, or {@code -1} if there is none.
+   */
+  private static int next(long[] mask, int fromOrdinal) {
+    if (fromOrdinal >= KEY_COUNT) {
+      return -1;
+    }
+    int index = fromOrdinal >>> 6;
+    long word = mask[index] & (-1L << fromOrdinal);
+    while (true) {
+      if (word != 0) {
+        return (index << 6) + Long.numberOfTrailingZeros(word);
+      }
+      if (++index == mask.length) {
+        return -1;
+      }
+      word = mask[index];
+    }
+  }
+
+  /**
+   * Gets a word of the changed keys bitmask, bit {@code i} of word {@code w} belongs to the key
+   * with the ordinal {@code w * 64 + i}.
+   *
+   * @param index The index of the word.
+   * @return The word of the bitmask.
+   */
+  long getChangedWord(int index) {
+    return changed[index];
+  }
+
+  /**
+   * Gets the {@link System#nanoTime()} the latest report has been read at. The difference to the
+   * current {@link System#nanoTime()} is the age of the event.
+   *
+   * @return The time the report has been read at in nanoseconds, {@code 0} if none has been read.
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the sequence number of the latest report. Every report read from a device gets the next
+   * number, starting at {@code 1}, so a gap between two events means that the reports in between
+   * did not change any key or have been coalesced.
+   *
+   * @return The sequence number of the report, {@code 0} if none has been read.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Stamps this snapshot with the report it has been parsed from.
+   *
+   * @param sequence The sequence number of the report.
+   * @param timestamp The {@link System#nanoTime()} the report has been read at.
+   */
+  public void stamp(long sequence, long timestamp) {
+    this.sequence = sequence;
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Compiles a set of keys into a bitmask laid out like the changed keys bitmask.
+   *
+   * @param keys The keys to compile.
+   * @return The bitmask with the bits of the keys set.
+   */
+  static long[] maskOf(Set<HidKey> keys) {
+    long[] mask = new long[WORD_COUNT];
+    for (HidKey key : keys) {
+      mask[key.ordinal() >>> 6] |= 1L << key.ordinal();
+    }
+    return mask;
+  }
+
+  /**
+   * Checks whether any key of a bitmask has changed with the latest report.
+   *
+   * @param mask The bitmask of the keys to check.
+   * @return {@code true} if one of the keys has changed, {@code false} otherwise.
+   */
+  boolean hasChanges(long[] mask) {
+    for (int i = 0; i < WORD_COUNT; i++) {
+      if ((changed[i] & mask[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether any key of a bitmask has been actuated or released with the latest report.
+   *
+   * @param mask The bitmask of the keys to check.
+   * @return {@code true} if one of the keys went down or up, {@code false} otherwise.
+   */
+  boolean hasActuationChanges(long[] mask) {
+    for (int i = 0; i < WORD_COUNT; i++) {
+      if ((toggled[i] & mask[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Clears the changes and actuation changes of all keys outside a bitmask.
+   *
+   * @param mask The bitmask of the keys whose changes are kept.
+   */
+  void retainChanges(long[] mask) {
+    for (int i = 0; i < WORD_COUNT; i++) {
+      changed[i] &= mask[i];
+      toggled[i] &= mask[i];
+    }
+    keyStates = null;
+  }
+
+  /**
+   * Sets the pressed amount of a key and marks it as changed.
+   *
+   * @param ordinal The ordinal of the key to set the value for.
+   * @param value The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public void set(int ordinal, float value) {
+    values[ordinal] = value;
+    changed[ordinal >>> 6] |= 1L << ordinal;
+    keyStates = null;
+  }
+
+  /**
+   * Sets the pressed amount of a key without marking it as changed.
+   *
+   * @param ordinal The ordinal of the key to set the value for.
+   * @param value The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  void load(int ordinal, float value) {
+    values[ordinal] = value;
+    keyStates = null;
+  }
+
+  /**
+   * Sets whether a key is actuated. If the actuation state changes, the key is marked as actuated
+   * or released with the latest report. This does not mark the key changed, which is done by
+   * setting its value.
+   *
+   * @param ordinal The ordinal of the key to set the actuation state for.
+   * @param actuated {@code true} if the key is actuated, {@code false} otherwise.
+   */
+  public void setActuated(int ordinal, boolean actuated) {
+    if (actuated != isActuated(ordinal)) {
+      this.actuated[ordinal >>> 6] ^= 1L << ordinal;
+      toggled[ordinal >>> 6] |= 1L << ordinal;
+    }
+  }
+
+  /**
+   * Gets a word of the actuated keys bitmask, laid out like the changed keys bitmask.
+   *
+   * @param index The index of the word.
+   * @return The word of the bitmask.
+   */
+  long getActuatedWord(int index) {
+    return actuated[index];
+  }
+
+  /**
+   * Sets a word of the actuated keys bitmask, laid out like the changed keys bitmask.
+   *
+   * @param index The index of the word.
+   * @param word The word of the bitmask.
+   */
+  void setActuatedWord(int index, long word) {
+    actuated[index] = word;
+  }
+
+  /**
+   * Gets a word of the bitmask of keys actuated or released with the latest report, laid out like
+   * the changed keys bitmask.
+   *
+   * @param index The index of the word.
+   * @return The word of the bitmask.
+   */
+  long getToggledWord(int index) {
+    return toggled[index];
+  }
+
+  /**
+   * Sets a word of the bitmask of keys actuated or released with the latest report, laid out like
+   * the changed keys bitmask.
+   *
+   * @param index The index of the word.
+   * @param word The word of the bitmask.
+   */
+  void setToggledWord(int index, long word) {
+    toggled[index] = word;
+  }
+
+  /** Clears the changed keys and actuation changes, keeping the current values. */
+  public void clearChanges() {
+    Arrays.fill(changed, 0L);
+    Arrays.fill(toggled, 0L);
+    keyStates = null;
+  }
+
+  /**
+   * Resets all values to {@code 0.0}, releases all keys, clears the changed mask and the stamp of
+   * the latest report.
+   */
+  public void reset() {
+    Arrays.fill(values, 0.0f);
+    Arrays.fill(actuated, 0L);
+    stamp(0L, 0L);
+    clearChanges();
+  }
+
+  /**
+   * Overwrites this snapshot with the values, actuation states, changed keys, actuation changes and
+   * stamp of another snapshot.
+   *
+   * @param other The snapshot to copy from.
+   */
+  public void copyFrom(AnalogKeySnapshot other) {
+    System.arraycopy(other.values, 0, values, 0, KEY_COUNT);
+    System.arraycopy(other.changed, 0, changed, 0, changed.length);
+    System.arraycopy(other.actuated, 0, actuated, 0, actuated.length);
+    System.arraycopy(other.toggled, 0, toggled, 0, toggled.length);
+    stamp(other.sequence, other.timestamp);
+    keyStates = null;
+  }
+
+  /**
+   * Creates an independent copy of this snapshot.
+   *
+   * @return A new snapshot holding the same values, actuation states, changed keys and stamp.
+   */
+  public AnalogKeySnapshot copy() {
+    AnalogKeySnapshot copy = new AnalogKeySnapshot();
+    copy.copyFrom(this);
+    return copy;
+  }
+
+  /**
+   * Gets the changed keys as a {@link Set} of {@link AnalogKeyState}. This is an adapter for the
+   * {@link Set} based API and allocates; the result is cached until the snapshot is modified.
+   *
+   * @return An unmodifiable {@link Set} of the changed key states.
+   */
+  public Set<AnalogKeyState> toKeyStates() {
+    if (keyStates == null) {
+      Set<AnalogKeyState> states = new HashSet<>();
+      for (int i = nextChanged(0); i >= 0; i = nextChanged(i + 1)) {
+        states.add(new AnalogKeyState(KEYS[i], values[i]));
+      }
+      keyStates = Collections.unmodifiableSet(states);
+    }
+    return keyStates;
+  }
+}
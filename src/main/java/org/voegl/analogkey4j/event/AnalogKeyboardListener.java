@@ -18,6 +18,33 @@ public interface AnalogKeyboardListener extends EventListener {
    */
   void keyPressed(AnalogKeyboardDevice keyboard, Set<AnalogKeyState> keyStates);
 
+  /**
+   * This method is called if any open analog keyboard's key state has changed. It provides the key
+   * states as a reusable {@link AnalogKeySnapshot}, so listeners overriding it can read them
+   * without allocating. The snapshot is only valid until this method returns, use {@link
+   * AnalogKeySnapshot#copy()} to retain it. By default, this delegates to {@link
+   * #keyPressed(AnalogKeyboardDevice, Set)}.
+   *
+   * @param keyboard The keyboard for which a key has changed its state.
+   * @param snapshot The current key states, with the keys that have changed marked.
+   */
+  default void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+    keyPressed(keyboard, snapshot.toKeyStates());
+  }
+
+  /**
+   * This method is called if keys of any open analog keyboard have been actuated or released. Keys
+   * are only actuated if key profiles are configured. The keys that went down are told by {@link
+   * AnalogKeySnapshot#isKeyDown(org.voegl.analogkey4j.key.HidKey)}, the keys that went up by {@link
+   * AnalogKeySnapshot#isKeyUp(org.voegl.analogkey4j.key.HidKey)}, and all of them can be iterated
+   * with {@link AnalogKeySnapshot#nextActuationChange(int)}. Actuation events are never coalesced.
+   * The snapshot is only valid until this method returns. By default, this does nothing.
+   *
+   * @param keyboard The keyboard for which keys have been actuated or released.
+   * @param snapshot The current key states, with the actuated and released keys marked.
+   */
+  default void keysActuated(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {}
+
   /**
    * This method is called if any supported analog keyboard has been attached.
    *
@@ -1,46 +1,123 @@
 package org.voegl.analogkey4j.event;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import org.voegl.analogkey4j.metrics.ListenerMetrics;
 import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
 
 /**
  * A manager handling all listeners subscribed to any analog keyboard events. Library users should
- * use the add and remove listener function provided in {@link HidServicesListenerImpl}. It can fire
- * events in a non-blocking way by using an {@link ExecutorService}.
+ * use the add and remove listener function provided in {@link HidServicesListenerImpl}. It fires
+ * events in a non-blocking way by handing them over to a bounded ring buffer per listener, which is
+ * drained by the listener's own event thread.
  */
 public class AnalogKeyboardListenerList {
-  private final Set<AnalogKeyboardListener> listeners =
-      Collections.synchronizedSet(new HashSet<>());
-
-  private final ExecutorService executorService =
-      Executors.newSingleThreadExecutor(
-          runnable -> {
-            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
-            thread.setName("Analog keyboard event thread");
-            thread.setDaemon(true);
-            return thread;
-          });
+  private volatile ListenerSubscription[] subscriptions = new ListenerSubscription[0];
 
   /**
-   * Adds a new listener to the pool of listeners.
+   * Adds a new listener to the pool of listeners, using the {@link ListenerOptions#DEFAULT}
+   * options.
    *
    * @param listener The listener to be added.
    */
   public void add(AnalogKeyboardListener listener) {
-    listeners.add(listener);
+    add(listener, ListenerOptions.DEFAULT);
   }
 
   /**
-   * Removes a listener from the pool of listeners.
+   * Adds a new listener to the pool of listeners. Adding a listener that is already part of the
+   * pool does nothing.
+   *
+   * @param listener The listener to be added.
+   * @param options The options describing how events are delivered to the listener.
+   */
+  public synchronized void add(AnalogKeyboardListener listener, ListenerOptions options) {
+    for (ListenerSubscription subscription : subscriptions) {
+      if (subscription.getListener().equals(listener)) {
+        return;
+      }
+    }
+
+    ListenerSubscription subscription = new ListenerSubscription(listener, options);
+    ListenerSubscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+    updated[subscriptions.length] = subscription;
+    subscription.start();
+    subscriptions = updated;
+  }
+
+  /**
+   * Removes a listener from the pool of listeners. Events that are still pending for the listener
+   * are discarded.
    *
    * @param listener The listener to be removed.
    */
-  public void remove(AnalogKeyboardListener listener) {
-    listeners.remove(listener);
+  public synchronized void remove(AnalogKeyboardListener listener) {
+    for (int i = 0; i < subscriptions.length; i++) {
+      ListenerSubscription subscription = subscriptions[i];
+      if (subscription.getListener().equals(listener)) {
+        ListenerSubscription[] updated = new ListenerSubscription[subscriptions.length - 1];
+        System.arraycopy(subscriptions, 0, updated, 0, i);
+        System.arraycopy(subscriptions, i + 1, updated, i, updated.length - i);
+        subscriptions = updated;
+        subscription.close();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Checks whether no listener is subscribed.
+   *
+   * @return {@code true} if there are no listeners, {@code false} otherwise.
+   */
+  boolean isEmpty() {
+    return subscriptions.length == 0;
+  }
+
+  /** Removes all listeners, events that are still pending for them are discarded. */
+  synchronized void clear() {
+    ListenerSubscription[] removed = subscriptions;
+    subscriptions = new ListenerSubscription[0];
+    for (ListenerSubscription subscription : removed) {
+      subscription.close();
+    }
+  }
+
+  /**
+   * Takes a snapshot of the delivery metrics of all listeners.
+   *
+   * @return The snapshots of the metrics, one per listener.
+   */
+  public List<ListenerMetrics.Snapshot> getMetrics() {
+    ListenerSubscription[] current = subscriptions;
+    List<ListenerMetrics.Snapshot> metrics = new ArrayList<>(current.length);
+    for (ListenerSubscription subscription : current) {
+      metrics.add(subscription.getMetrics());
+    }
+    return metrics;
+  }
+
+  /**
+   * Sends an event to all listeners.
+   *
+   * @param type The type of the event.
+   * @param hidDevice The device the event belongs to.
+   * @param snapshot The key states of a keys changed or keys actuated event, otherwise {@code
+   *     null}.
+   * @param states The key states of a key pressed event, otherwise {@code null}.
+   * @param message The message of an error event, otherwise {@code null}.
+   */
+  private void fire(
+      int type,
+      AnalogKeyboardDevice hidDevice,
+      AnalogKeySnapshot snapshot,
+      Set<AnalogKeyState> states,
+      String message) {
+    for (ListenerSubscription subscription : subscriptions) {
+      subscription.publish(type, hidDevice, snapshot, states, message);
+    }
   }
 
   /**
@@ -49,7 +126,7 @@ public class AnalogKeyboardListenerList {
    * @param hidDevice The devices that is added.
    */
   public void fireKeyboardAdded(AnalogKeyboardDevice hidDevice) {
-    executorService.submit(() -> listeners.forEach(listener -> listener.keyboardAdded(hidDevice)));
+    fire(ListenerSubscription.KEYBOARD_ADDED, hidDevice, null, null, null);
   }
 
   /**
@@ -58,8 +135,7 @@ public class AnalogKeyboardListenerList {
    * @param hidDevice The devices that is removed.
    */
   public void fireKeyboardRemoved(AnalogKeyboardDevice hidDevice) {
-    executorService.submit(
-        () -> listeners.forEach(listener -> listener.keyboardRemoved(hidDevice)));
+    fire(ListenerSubscription.KEYBOARD_REMOVED, hidDevice, null, null, null);
   }
 
   /**
@@ -68,7 +144,7 @@ public class AnalogKeyboardListenerList {
    * @param hidDevice The devices that is opened.
    */
   public void fireKeyboardOpened(AnalogKeyboardDevice hidDevice) {
-    executorService.submit(() -> listeners.forEach(listener -> listener.keyboardOpened(hidDevice)));
+    fire(ListenerSubscription.KEYBOARD_OPENED, hidDevice, null, null, null);
   }
 
   /**
@@ -77,7 +153,7 @@ public class AnalogKeyboardListenerList {
    * @param hidDevice The devices that is closed.
    */
   public void fireKeyboardClosed(AnalogKeyboardDevice hidDevice) {
-    executorService.submit(() -> listeners.forEach(listener -> listener.keyboardClosed(hidDevice)));
+    fire(ListenerSubscription.KEYBOARD_CLOSED, hidDevice, null, null, null);
   }
 
   /**
@@ -87,8 +163,7 @@ public class AnalogKeyboardListenerList {
    * @param message The error message.
    */
   public void fireKeyboardError(AnalogKeyboardDevice hidDevice, String message) {
-    executorService.submit(
-        () -> listeners.forEach(listener -> listener.keyboardError(hidDevice, message)));
+    fire(ListenerSubscription.KEYBOARD_ERROR, hidDevice, null, null, message);
   }
 
   /**
@@ -98,9 +173,29 @@ public class AnalogKeyboardListenerList {
    * @param states The keys and corresponding states that have changed.
    */
   public void fireKeyPressed(AnalogKeyboardDevice hidDevice, Set<AnalogKeyState> states) {
-    executorService.submit(
-        () ->
-            listeners.forEach(
-                listener -> listener.keyPressed(hidDevice, Collections.unmodifiableSet(states))));
+    fire(ListenerSubscription.KEY_PRESSED, hidDevice, null, Set.copyOf(states), null);
+  }
+
+  /**
+   * Sends a keys changed event to all listeners. The snapshot is copied into each listener's event
+   * buffer, so the caller may reuse it right away.
+   *
+   * @param hidDevice The device which the keys belong to.
+   * @param snapshot The current key states, with the keys that have changed marked.
+   */
+  public void fireKeysChanged(AnalogKeyboardDevice hidDevice, AnalogKeySnapshot snapshot) {
+    fire(ListenerSubscription.KEYS_CHANGED, hidDevice, snapshot, null, null);
+  }
+
+  /**
+   * Sends a keys actuated event to all listeners. The snapshot is copied into each listener's event
+   * buffer, so the caller may reuse it right away.
+   *
+   * @param hidDevice The device which the keys belong to.
+   * @param snapshot The current key states, with the keys that have been actuated or released
+   *     marked.
+   */
+  public void fireKeysActuated(AnalogKeyboardDevice hidDevice, AnalogKeySnapshot snapshot) {
+    fire(ListenerSubscription.KEYS_ACTUATED, hidDevice, snapshot, null, null);
   }
 }
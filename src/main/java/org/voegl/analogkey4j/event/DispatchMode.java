@@ -0,0 +1,18 @@
+package org.voegl.analogkey4j.event;
+
+/** Defines on which thread events are delivered to an {@link AnalogKeyboardListener}. */
+public enum DispatchMode {
+  /**
+   * Events are buffered and delivered on the listener's own event thread, as described by its
+   * {@link OverflowPolicy}. The firing thread is decoupled from the listener.
+   */
+  ASYNC,
+  /**
+   * Events are delivered directly on the thread firing them, which removes the thread handoff and
+   * its wakeup latency. Key events are delivered on the keyboard's reader thread, so the listener
+   * must return quickly and must never block, otherwise it delays reading further reports. The
+   * listener may be called concurrently by the reader threads of multiple keyboards and must be
+   * thread-safe. Snapshots passed to it are only valid until the callback returns.
+   */
+  INLINE
+}
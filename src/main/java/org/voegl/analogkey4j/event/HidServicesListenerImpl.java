@@ -1,17 +1,36 @@
 package org.voegl.analogkey4j.event;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import lombok.Getter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.hid4java.HidDevice;
 import org.hid4java.HidManager;
 import org.hid4java.HidServices;
 import org.hid4java.HidServicesListener;
 import org.hid4java.HidServicesSpecification;
 import org.hid4java.event.HidServicesEvent;
+import org.voegl.analogkey4j.metrics.DeviceMetrics;
+import org.voegl.analogkey4j.metrics.MetricsSnapshot;
 import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
 import org.voegl.analogkey4j.plugins.AnalogKeyboardDeviceUtil;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardOptions;
+import org.voegl.analogkey4j.plugins.ReaderMode;
+import org.voegl.analogkey4j.plugins.ReaderPool;
+import org.voegl.analogkey4j.record.ReportRecorder;
+import org.voegl.analogkey4j.transport.HidTransport;
 
 /**
  * Manages analog keyboard devices, including starting, stopping, and monitoring their activity. It
@@ -20,9 +39,30 @@ import org.voegl.analogkey4j.plugins.AnalogKeyboardDeviceUtil;
  */
 public class HidServicesListenerImpl implements HidServicesListener {
 
+  /* the maximum number of threads opening keyboards concurrently */
+  private static final int MAX_OPENING_THREADS = 4;
   private final AnalogKeyboardListenerList listeners = new AnalogKeyboardListenerList();
   private HidServices hidServices;
-  @Getter private final Set<AnalogKeyboardDevice> keyboardDevices = new HashSet<>();
+  /* the supported keyboards by the path of their device, updated from hid4java and user threads */
+  private final Map<String, AnalogKeyboardDevice> keyboardDevices = new ConcurrentHashMap<>();
+  private final AnalogKeyboardOptions options;
+  private volatile ReportRecorder recorder;
+  /* shared by all keyboards in the shared pool reader mode, created with the first keyboard */
+  private ReaderPool readerPool;
+
+  /** Constructs a new listener reading keyboards with the default options. */
+  public HidServicesListenerImpl() {
+    this(AnalogKeyboardOptions.DEFAULT);
+  }
+
+  /**
+   * Constructs a new listener reading keyboards with the given options.
+   *
+   * @param options The options describing how keyboards are read.
+   */
+  public HidServicesListenerImpl(AnalogKeyboardOptions options) {
+    this.options = Objects.requireNonNull(options, "options");
+  }
 
   /**
    * Starts the HidServices and initializes attached devices. This method configures the HID
@@ -37,49 +77,125 @@ public class HidServicesListenerImpl implements HidServicesListener {
     hidServices.addHidServicesListener(this);
     hidServices.start();
 
+    // the plugin index only creates plugins for supported devices
     for (HidDevice hidDevice : hidServices.getAttachedHidDevices()) {
+      if (keyboardDevices.containsKey(hidDevice.getPath())) {
+        continue;
+      }
       Optional<AnalogKeyboardDevice> keyboardDevice =
           AnalogKeyboardDeviceUtil.getAvailablePlugin(hidDevice, listeners);
-      keyboardDevice.ifPresent(keyboardDevices::add);
+      keyboardDevice.ifPresent(this::addKeyboard);
+    }
+  }
+
+  /**
+   * Opens all attached analog keyboards that are closed. Opening a keyboard blocks on the HID
+   * driver, so the keyboards are opened concurrently on a few threads of their own, which are
+   * stopped once all keyboards have been opened. A keyboard that cannot be opened is reported
+   * through an error event.
+   *
+   * @return A {@link CompletableFuture} completed with the keyboards that have been opened.
+   */
+  public CompletableFuture<Set<AnalogKeyboardDevice>> openAll() {
+    List<AnalogKeyboardDevice> closed = new ArrayList<>();
+    for (AnalogKeyboardDevice keyboard : keyboardDevices.values()) {
+      if (keyboard.isClosed()) {
+        closed.add(keyboard);
+      }
     }
+    if (closed.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptySet());
+    }
+
+    AtomicInteger count = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(closed.size(), MAX_OPENING_THREADS),
+            task -> {
+              Thread thread = new Thread(task, "analog keyboard opener " + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    List<CompletableFuture<AnalogKeyboardDevice>> opening = new ArrayList<>();
+    for (AnalogKeyboardDevice keyboard : closed) {
+      opening.add(
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  keyboard.open();
+                  return keyboard;
+                } catch (IllegalStateException e) {
+                  listeners.fireKeyboardError(keyboard, e.getMessage());
+                  return null;
+                }
+              },
+              executor));
+    }
+    executor.shutdown();
+    return CompletableFuture.allOf(opening.toArray(new CompletableFuture<?>[0]))
+        .thenApply(
+            ignored -> {
+              Set<AnalogKeyboardDevice> opened = new HashSet<>();
+              for (CompletableFuture<AnalogKeyboardDevice> future : opening) {
+                AnalogKeyboardDevice keyboard = future.join();
+                if (keyboard != null) {
+                  opened.add(keyboard);
+                }
+              }
+              return Collections.unmodifiableSet(opened);
+            });
   }
 
   /**
    * Stops the HidServices and closes any active analog keyboard devices. This method ensures all
-   * devices are properly closed and sends close and remove events accordingly.
+   * devices are properly closed and sends close and remove events accordingly. Devices are closed
+   * in parallel, and an error event is sent for every device that does not close within the
+   * configured close timeout.
    */
   public void stop() {
     // close all unclosed devices
-    for (AnalogKeyboardDevice device : keyboardDevices) {
+    List<CompletableFuture<Void>> closing = new ArrayList<>();
+    for (AnalogKeyboardDevice device : keyboardDevices.values()) {
       if (!device.isReadDone() && !device.isClosed()) {
-        device.close();
+        closing.add(device.close());
+      } else {
+        closing.add(device.onClosed());
       }
     }
 
     // wait for devices to close
-    long startTime = System.currentTimeMillis();
-    long timeout = 60000;
-
-    while (keyboardDevices.stream().anyMatch(d -> !d.isClosed())) {
-      if (System.currentTimeMillis() - startTime > timeout) {
-        throw new RuntimeException("Some keyboard devices did not close after 60 seconds.");
+    try {
+      CompletableFuture.allOf(closing.toArray(new CompletableFuture<?>[0]))
+          .get(options.getCloseTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      // devices that are still open are reported below
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (AnalogKeyboardDevice device : keyboardDevices.values()) {
+      if (!device.isClosed()) {
+        listeners.fireKeyboardError(
+            device, "Keyboard did not close within " + options.getCloseTimeout());
       }
+    }
 
-      try {
-        // noinspection BusyWait
-        Thread.sleep(50);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+    // manually send removed events
+    for (AnalogKeyboardDevice keyboardDevice : keyboardDevices.values()) {
+      if (keyboardDevices.remove(getPath(keyboardDevice), keyboardDevice)) {
+        listeners.fireKeyboardRemoved(keyboardDevice);
       }
     }
 
-    // manually send removed events
-    for (AnalogKeyboardDevice keyboardDevice : keyboardDevices) {
-      keyboardDevices.remove(keyboardDevice);
-      listeners.fireKeyboardRemoved(keyboardDevice);
+    if (hidServices != null) {
+      hidServices.stop();
     }
 
-    hidServices.stop();
+    synchronized (this) {
+      if (readerPool != null) {
+        readerPool.close();
+        readerPool = null;
+      }
+    }
   }
 
   /**
@@ -91,6 +207,16 @@ public class HidServicesListenerImpl implements HidServicesListener {
     listeners.add(listener);
   }
 
+  /**
+   * Adds an event listener to the list of event listeners.
+   *
+   * @param listener The event listener to be added.
+   * @param options The options describing how events are delivered to the listener.
+   */
+  public void addListener(AnalogKeyboardListener listener, ListenerOptions options) {
+    listeners.add(listener, options);
+  }
+
   /**
    * Removes an event listener to the list of event listeners.
    *
@@ -100,6 +226,135 @@ public class HidServicesListenerImpl implements HidServicesListener {
     listeners.remove(listener);
   }
 
+  /**
+   * Starts or stops recording the raw reports of all current and future analog keyboards.
+   *
+   * @param recorder The recorder to append the reports to, or {@code null} to stop recording.
+   */
+  public void setRecorder(ReportRecorder recorder) {
+    this.recorder = recorder;
+    for (AnalogKeyboardDevice keyboard : keyboardDevices.values()) {
+      keyboard.setRecorder(recorder);
+    }
+  }
+
+  /**
+   * Creates a view merging the keys of all attached keyboards into a single logical keyboard. The
+   * view is updated by the reader threads of the keyboards until it is closed.
+   *
+   * @param mode How the values of a key on several keyboards are merged.
+   * @return The merged view.
+   */
+  public MergedKeyboardView createMergedView(MergeMode mode) {
+    MergedKeyboardView view = new MergedKeyboardView(Objects.requireNonNull(mode, "mode"), this);
+    listeners.add(view, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+    for (AnalogKeyboardDevice keyboard : keyboardDevices.values()) {
+      view.attach(keyboard);
+    }
+    return view;
+  }
+
+  /**
+   * Takes a snapshot of the metrics of all attached keyboards and all listeners.
+   *
+   * @return The snapshot of the metrics.
+   */
+  public MetricsSnapshot getMetrics() {
+    List<DeviceMetrics.Snapshot> devices = new ArrayList<>();
+    keyboardDevices.forEach((path, keyboard) -> devices.add(keyboard.getMetrics().snapshot(path)));
+    return new MetricsSnapshot(devices, listeners.getMetrics());
+  }
+
+  /**
+   * Gets all supported analog keyboards that are currently attached.
+   *
+   * @return An unmodifiable {@link Set} of the attached analog keyboards.
+   */
+  public Set<AnalogKeyboardDevice> getKeyboardDevices() {
+    return Set.copyOf(keyboardDevices.values());
+  }
+
+  /**
+   * Gets the supported analog keyboard of a device.
+   *
+   * @param path The path of the device.
+   * @return An {@link Optional} containing the analog keyboard, or an empty {@link Optional} if the
+   *     device is not a supported analog keyboard.
+   */
+  public Optional<AnalogKeyboardDevice> getKeyboardDevice(String path) {
+    return Optional.ofNullable(keyboardDevices.get(path));
+  }
+
+  private static String getPath(AnalogKeyboardDevice keyboard) {
+    return keyboard.getTransport().getPath();
+  }
+
+  /**
+   * Registers a supported keyboard, unless a keyboard is already registered for its device.
+   *
+   * @param keyboard The keyboard to register.
+   * @return {@code true} if the keyboard was registered, {@code false} if it is a duplicate.
+   */
+  private boolean addKeyboard(AnalogKeyboardDevice keyboard) {
+    keyboard.setOptions(options);
+    if (options.getReaderMode() == ReaderMode.SHARED_POOL) {
+      keyboard.setReaderPool(getReaderPool());
+    }
+    ReportRecorder current = recorder;
+    if (current != null) {
+      keyboard.setRecorder(current);
+    }
+    return keyboardDevices.putIfAbsent(getPath(keyboard), keyboard) == null;
+  }
+
+  private synchronized ReaderPool getReaderPool() {
+    if (readerPool == null) {
+      readerPool = new ReaderPool(options.getReaderPoolSize());
+    }
+    return readerPool;
+  }
+
+  /**
+   * Attaches a device that is not discovered by hid4java, such as a {@link
+   * org.voegl.analogkey4j.transport.SyntheticTransport}. If the device is an analog keyboard, it
+   * will be added to the list of supported devices. An event is fired to notify listeners. A device
+   * is only attached once, attaching a path again returns the keyboard attached before.
+   *
+   * @param transport The transport of the device to attach.
+   * @return An {@link Optional} containing the analog keyboard, or an empty {@link Optional} if no
+   *     plugin supports the device.
+   */
+  public Optional<AnalogKeyboardDevice> attach(HidTransport transport) {
+    if (keyboardDevices.containsKey(transport.getPath())) {
+      return getKeyboardDevice(transport.getPath());
+    }
+    Optional<AnalogKeyboardDevice> optionalKeyboard =
+        AnalogKeyboardDeviceUtil.getAvailablePlugin(transport, listeners);
+    if (optionalKeyboard.isPresent()) {
+      AnalogKeyboardDevice keyboard = optionalKeyboard.get();
+      if (!addKeyboard(keyboard)) {
+        return getKeyboardDevice(transport.getPath());
+      }
+      listeners.fireKeyboardAdded(keyboard);
+    }
+    return optionalKeyboard;
+  }
+
+  /**
+   * Detaches a device previously attached using {@link #attach(HidTransport)}. It will be closed
+   * and removed from the list of active devices. An event is fired to notify listeners.
+   *
+   * @param keyboard The analog keyboard to detach.
+   */
+  public void detach(AnalogKeyboardDevice keyboard) {
+    if (keyboardDevices.remove(getPath(keyboard), keyboard)) {
+      if (!keyboard.isClosed()) {
+        keyboard.close();
+      }
+      listeners.fireKeyboardRemoved(keyboard);
+    }
+  }
+
   /**
    * Called when an HID device is attached. If the device is an analog keyboard, it will be added to
    * the list of supported devices. An event is fired to notify listeners.
@@ -108,12 +363,13 @@ public class HidServicesListenerImpl implements HidServicesListener {
    */
   @Override
   public void hidDeviceAttached(HidServicesEvent event) {
+    if (keyboardDevices.containsKey(event.getHidDevice().getPath())) {
+      return;
+    }
     Optional<AnalogKeyboardDevice> optionalKeyboard =
         AnalogKeyboardDeviceUtil.getAvailablePlugin(event.getHidDevice(), listeners);
-    if (optionalKeyboard.isPresent()) {
-      AnalogKeyboardDevice keyboard = optionalKeyboard.get();
-      listeners.fireKeyboardAdded(keyboard);
-      keyboardDevices.add(keyboard);
+    if (optionalKeyboard.isPresent() && addKeyboard(optionalKeyboard.get())) {
+      listeners.fireKeyboardAdded(optionalKeyboard.get());
     }
   }
 
@@ -125,14 +381,12 @@ public class HidServicesListenerImpl implements HidServicesListener {
    */
   @Override
   public void hidDeviceDetached(HidServicesEvent event) {
-    for (AnalogKeyboardDevice keyboardDevice : keyboardDevices) {
-      if (keyboardDevice.getDevice().equals(event.getHidDevice())) {
-        if (!keyboardDevice.isClosed()) {
-          keyboardDevice.close();
-        }
-        keyboardDevices.remove(keyboardDevice);
-        listeners.fireKeyboardRemoved(keyboardDevice);
+    AnalogKeyboardDevice keyboardDevice = keyboardDevices.remove(event.getHidDevice().getPath());
+    if (keyboardDevice != null) {
+      if (!keyboardDevice.isClosed()) {
+        keyboardDevice.close();
       }
+      listeners.fireKeyboardRemoved(keyboardDevice);
     }
   }
 
@@ -144,14 +398,7 @@ public class HidServicesListenerImpl implements HidServicesListener {
    */
   @Override
   public void hidFailure(HidServicesEvent event) {
-    AnalogKeyboardDevice plugin = null;
-    for (AnalogKeyboardDevice savedPlugins : keyboardDevices) {
-      if (savedPlugins.getDevice().equals(event.getHidDevice())) {
-        plugin = savedPlugins;
-        break;
-      }
-    }
-
+    AnalogKeyboardDevice plugin = keyboardDevices.get(event.getHidDevice().getPath());
     if (plugin != null) {
       listeners.fireKeyboardError(plugin, event.getHidDevice().getLastErrorMessage());
     }
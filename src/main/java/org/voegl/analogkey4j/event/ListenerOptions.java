@@ -0,0 +1,47 @@
+package org.voegl.analogkey4j.event;
+
+import java.util.Set;
+import java.util.function.Predicate;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+
+/**
+ * Options describing how events are delivered to a single {@link AnalogKeyboardListener}. Instances
+ * are created using {@link #builder()}.
+ */
+@Getter
+@Builder
+@ToString
+public class ListenerOptions {
+
+  /** The options used for listeners that are added without specifying any. */
+  public static final ListenerOptions DEFAULT = builder().build();
+
+  /** The thread events are delivered on. */
+  @Builder.Default private final DispatchMode dispatchMode = DispatchMode.ASYNC;
+
+  /** The policy applied if the listener's event buffer is full, unused for inline dispatch. */
+  @Builder.Default private final OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+  /**
+   * The number of pending events buffered for the listener, rounded up to a power of two. Unused
+   * for inline dispatch.
+   */
+  @Builder.Default private final int bufferSize = 256;
+
+  /**
+   * The keys the listener receives key events for, or {@code null} for all keys. Key events are
+   * only delivered if one of these keys changed, and only these keys are marked changed in them.
+   * The keys are compiled into a bitmask when the listener is added.
+   */
+  private final Set<HidKey> keys;
+
+  /**
+   * The keyboards the listener receives events for, or {@code null} for all keyboards. The filter
+   * is tested on the firing thread for every event, so it should be cheap.
+   */
+  private final Predicate<AnalogKeyboardDevice> deviceFilter;
+}
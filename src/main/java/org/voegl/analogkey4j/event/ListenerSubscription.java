@@ -0,0 +1,658 @@
+package org.voegl.analogkey4j.event;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import lombok.Getter;
+import org.voegl.analogkey4j.metrics.ListenerMetrics;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+
+/**
+ * Delivers events to a single {@link AnalogKeyboardListener}, either directly on the firing thread
+ * with {@link DispatchMode#INLINE} or on its own event thread otherwise. Events are passed through
+ * a bounded, preallocated ring buffer: producers claim a sequence using a CAS, write the claimed
+ * slot and publish it, while the event thread follows with its own sequence. Publishing an event
+ * does not allocate and does not take any locks.
+ *
+ * <p>Events the listener has filtered out by its keys or devices are skipped before they are
+ * published, so they never take up a slot of the ring buffer.
+ */
+class ListenerSubscription implements Runnable {
+  static final int KEYS_CHANGED = 0;
+  static final int KEY_PRESSED = 1;
+  static final int KEYBOARD_ADDED = 2;
+  static final int KEYBOARD_REMOVED = 3;
+  static final int KEYBOARD_OPENED = 4;
+  static final int KEYBOARD_CLOSED = 5;
+  static final int KEYBOARD_ERROR = 6;
+  static final int KEYS_ACTUATED = 7;
+
+  /* marks a slot that is currently being written */
+  private static final long WRITING = Long.MIN_VALUE;
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 200;
+  private static final long PARK_NANOS = 50_000;
+
+  /** A preallocated ring buffer entry. The event thread also keeps one to copy events into. */
+  private static class Slot {
+    volatile long sequence;
+    int type;
+    AnalogKeyboardDevice device;
+    String message;
+    Set<AnalogKeyState> keyStates;
+    long publishedAt;
+    final AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+  }
+
+  /**
+   * An event the event thread published to itself while the ring buffer was full. It is delivered
+   * after the events claimed before it, so it is neither lost nor waits for the event thread.
+   */
+  private final class OwnEvent {
+    final int type;
+    final AnalogKeyboardDevice device;
+    final AnalogKeySnapshot snapshot;
+    final Set<AnalogKeyState> keyStates;
+    final String message;
+    final long publishedAt = System.nanoTime();
+    /* the sequence of the first event claimed after this one */
+    final long after = cursor.get();
+
+    OwnEvent(
+        int type,
+        AnalogKeyboardDevice device,
+        AnalogKeySnapshot snapshot,
+        Set<AnalogKeyState> keyStates,
+        String message) {
+      this.type = type;
+      this.device = device;
+      this.keyStates = keyStates;
+      this.message = message;
+      if (snapshot != null) {
+        this.snapshot = snapshot.copy();
+        if (keyMask != null) {
+          this.snapshot.retainChanges(keyMask);
+        }
+      } else {
+        this.snapshot = null;
+      }
+    }
+  }
+
+  /**
+   * The key changes of a single device waiting to be delivered with {@link
+   * OverflowPolicy#COALESCE}. Producers write the latest value and then set the key's pending bit,
+   * the event thread clears the bits and then reads the values. A key may therefore be delivered
+   * twice with the same value, but a change is never lost. Keys actuated or released since the last
+   * delivery are accumulated the same way, so a delivered key is down or up if its latest actuation
+   * state differs from the one of the previous delivery or flipped in between.
+   */
+  private static class PendingKeys {
+    final AnalogKeyboardDevice device;
+    final AtomicIntegerArray values = new AtomicIntegerArray(AnalogKeySnapshot.KEY_COUNT);
+    final AtomicLongArray changed = new AtomicLongArray(AnalogKeySnapshot.WORD_COUNT);
+    /* the actuation states of the latest snapshot, which hold the state of all keys */
+    final AtomicLongArray actuated = new AtomicLongArray(AnalogKeySnapshot.WORD_COUNT);
+    /* the keys actuated or released since the last delivery */
+    final AtomicLongArray toggled = new AtomicLongArray(AnalogKeySnapshot.WORD_COUNT);
+    /* only accessed by the event thread */
+    final AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+    volatile boolean pending;
+    /* the time the oldest undelivered change has been merged */
+    volatile long pendingSince;
+    /* the stamp of the latest snapshot */
+    volatile long sequence;
+    volatile long timestamp;
+
+    PendingKeys(AnalogKeyboardDevice device) {
+      this.device = device;
+    }
+  }
+
+  @Getter private final AnalogKeyboardListener listener;
+  private final boolean inline;
+  private final OverflowPolicy overflowPolicy;
+  /* the keys the listener receives key events for, null for all keys */
+  private final long[] keyMask;
+  /* the devices the listener receives events for, null for all devices */
+  private final Predicate<AnalogKeyboardDevice> deviceFilter;
+  /* the filtered snapshots of inline dispatch, which may happen on several reader threads */
+  private final ThreadLocal<AnalogKeySnapshot> inlineSnapshots;
+  private final Slot[] slots;
+  private final int mask;
+  private final AtomicLong cursor = new AtomicLong();
+  private final AtomicLong droppedEvents = new AtomicLong();
+  private final ListenerMetrics metrics = new ListenerMetrics();
+  private final Slot current = new Slot();
+  /* the events the event thread published to itself while the ring buffer was full */
+  private final ArrayDeque<OwnEvent> ownOverflow = new ArrayDeque<>();
+  private final Thread thread;
+  private volatile PendingKeys[] pendingKeys = new PendingKeys[0];
+  private volatile long consumed;
+  private volatile boolean waiting;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a new subscription. The event thread, if any, is not started until {@link #start()}
+   * is called.
+   *
+   * @param listener The listener to deliver events to.
+   * @param options The options describing how events are delivered.
+   */
+  ListenerSubscription(AnalogKeyboardListener listener, ListenerOptions options) {
+    if (options.getBufferSize() < 1) {
+      throw new IllegalArgumentException("Invalid buffer size " + options.getBufferSize());
+    }
+    this.listener = listener;
+    this.inline = options.getDispatchMode() == DispatchMode.INLINE;
+    this.overflowPolicy = options.getOverflowPolicy();
+    this.keyMask = options.getKeys() != null ? AnalogKeySnapshot.maskOf(options.getKeys()) : null;
+    this.deviceFilter = options.getDeviceFilter();
+    this.inlineSnapshots =
+        inline && keyMask != null ? ThreadLocal.withInitial(AnalogKeySnapshot::new) : null;
+
+    int capacity = inline ? 1 : Integer.highestOneBit(options.getBufferSize() - 1) << 1;
+    if (capacity == 0) {
+      capacity = 1;
+    }
+    slots = new Slot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new Slot();
+      slots[i].sequence = i - capacity;
+    }
+    mask = capacity - 1;
+
+    if (inline) {
+      thread = null;
+    } else {
+      thread = new Thread(this);
+      thread.setName("Analog keyboard event thread");
+      thread.setDaemon(true);
+    }
+  }
+
+  /** Starts the event thread, if any. */
+  void start() {
+    if (thread != null) {
+      thread.start();
+    }
+  }
+
+  /** Stops the event thread, pending events are discarded. */
+  void close() {
+    closed = true;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Gets the number of events that have been overwritten before the listener received them.
+   *
+   * @return The number of dropped events.
+   */
+  long getDroppedEvents() {
+    return droppedEvents.get();
+  }
+
+  /**
+   * Takes a snapshot of the delivery metrics of the listener.
+   *
+   * @return The snapshot of the metrics.
+   */
+  ListenerMetrics.Snapshot getMetrics() {
+    long queueDepth = inline ? 0 : Math.max(0, Math.min(cursor.get() - consumed, slots.length));
+    return metrics.snapshot(String.valueOf(listener), queueDepth, droppedEvents.get());
+  }
+
+  /**
+   * Publishes an event to the listener. Snapshots are copied into the ring buffer, so the caller
+   * may reuse them right away. With inline dispatch, the listener is called before this returns.
+   *
+   * @param type The type of the event.
+   * @param device The device the event belongs to.
+   * @param snapshot The key states of a {@link #KEYS_CHANGED} or {@link #KEYS_ACTUATED} event,
+   *     otherwise {@code null}.
+   * @param keyStates The key states of a {@link #KEY_PRESSED} event, otherwise {@code null}.
+   * @param message The message of a {@link #KEYBOARD_ERROR} event, otherwise {@code null}.
+   */
+  void publish(
+      int type,
+      AnalogKeyboardDevice device,
+      AnalogKeySnapshot snapshot,
+      Set<AnalogKeyState> keyStates,
+      String message) {
+    if (closed || !accepts(type, device, snapshot, keyStates)) {
+      return;
+    }
+    if (inline) {
+      if (inlineSnapshots != null && snapshot != null) {
+        AnalogKeySnapshot filtered = inlineSnapshots.get();
+        filtered.copyFrom(snapshot);
+        filtered.retainChanges(keyMask);
+        snapshot = filtered;
+      }
+      dispatch(type, device, snapshot, keyStates, message, System.nanoTime());
+      return;
+    }
+    if (overflowPolicy == OverflowPolicy.COALESCE && type == KEYS_CHANGED) {
+      merge(device, snapshot, true);
+      return;
+    }
+    if (overflowPolicy == OverflowPolicy.COALESCE && type == KEYS_ACTUATED) {
+      // the pending keys are delivered before each ring event of the device, so merging the values
+      // first guarantees an actuation never arrives before the value change that caused it
+      merge(device, snapshot, false);
+    }
+    long sequence;
+    if (overflowPolicy != OverflowPolicy.DROP_OLDEST && Thread.currentThread() == thread) {
+      // the event thread publishing to itself must never wait for itself
+      sequence = ownOverflow.isEmpty() ? claimOwnSlot() : -1;
+      if (sequence < 0) {
+        ownOverflow.add(new OwnEvent(type, device, snapshot, keyStates, message));
+        return;
+      }
+    } else {
+      sequence = cursor.getAndIncrement();
+    }
+    Slot slot = slots[(int) sequence & mask];
+    long previous = sequence - slots.length;
+
+    // with DROP_OLDEST, the oldest undelivered event is overwritten instead
+    if (overflowPolicy != OverflowPolicy.DROP_OLDEST) {
+      for (int tries = 0; consumed <= previous; tries++) {
+        if (closed) {
+          return;
+        }
+        backOff(tries);
+      }
+    }
+    // wait for a producer of the previous lap to finish writing this slot
+    for (int tries = 0; slot.sequence != previous; tries++) {
+      if (closed) {
+        return;
+      }
+      backOff(tries);
+    }
+
+    slot.sequence = WRITING;
+    VarHandle.storeStoreFence();
+    slot.type = type;
+    slot.device = device;
+    slot.message = message;
+    slot.keyStates = keyStates;
+    slot.publishedAt = System.nanoTime();
+    if (snapshot != null) {
+      slot.snapshot.copyFrom(snapshot);
+      if (keyMask != null) {
+        slot.snapshot.retainChanges(keyMask);
+      }
+    }
+    slot.sequence = sequence;
+
+    if (waiting) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Claims a sequence for an event the event thread publishes to itself, if there is a free slot.
+   * Only the event thread frees slots, so it must not claim a slot it would have to wait for.
+   *
+   * @return The claimed sequence, or {@code -1} if the ring buffer is full.
+   */
+  private long claimOwnSlot() {
+    while (true) {
+      long sequence = cursor.get();
+      if (sequence - consumed >= slots.length) {
+        return -1;
+      }
+      if (cursor.compareAndSet(sequence, sequence + 1)) {
+        return sequence;
+      }
+    }
+  }
+
+  /**
+   * Checks whether an event passes the key and device filters of the listener.
+   *
+   * @param type The type of the event.
+   * @param device The device the event belongs to.
+   * @param snapshot The key states of a {@link #KEYS_CHANGED} or {@link #KEYS_ACTUATED} event.
+   * @param keyStates The key states of a {@link #KEY_PRESSED} event.
+   * @return {@code true} if the event is delivered to the listener, {@code false} otherwise.
+   */
+  private boolean accepts(
+      int type,
+      AnalogKeyboardDevice device,
+      AnalogKeySnapshot snapshot,
+      Set<AnalogKeyState> keyStates) {
+    if (deviceFilter != null && !deviceFilter.test(device)) {
+      return false;
+    }
+    if (keyMask == null) {
+      return true;
+    }
+    return switch (type) {
+      case KEYS_CHANGED -> snapshot.hasChanges(keyMask);
+      case KEYS_ACTUATED -> snapshot.hasActuationChanges(keyMask);
+      case KEY_PRESSED -> {
+        for (AnalogKeyState state : keyStates) {
+          int ordinal = state.key().ordinal();
+          if ((keyMask[ordinal >>> 6] & (1L << ordinal)) != 0) {
+            yield true;
+          }
+        }
+        yield false;
+      }
+      default -> true;
+    };
+  }
+
+  /**
+   * Merges the changed keys of a snapshot into the pending keys of its device.
+   *
+   * @param device The device the snapshot belongs to.
+   * @param snapshot The key states with the keys that have changed marked.
+   * @param toggles {@code true} to merge the keys actuated or released as well, {@code false} if
+   *     they are delivered by a {@link #KEYS_ACTUATED} event of the same snapshot.
+   */
+  private void merge(AnalogKeyboardDevice device, AnalogKeySnapshot snapshot, boolean toggles) {
+    PendingKeys pending = getPendingKeys(device);
+    pending.sequence = snapshot.getSequence();
+    pending.timestamp = snapshot.getTimestamp();
+    for (int word = 0; word < AnalogKeySnapshot.WORD_COUNT; word++) {
+      pending.actuated.set(word, snapshot.getActuatedWord(word));
+      long bits = snapshot.getChangedWord(word);
+      long toggled = toggles ? snapshot.getToggledWord(word) : 0L;
+      if (keyMask != null) {
+        bits &= keyMask[word];
+        toggled &= keyMask[word];
+      }
+      if (toggled != 0) {
+        pending.toggled.getAndAccumulate(word, toggled, (a, b) -> a | b);
+      }
+      if (bits == 0) {
+        continue;
+      }
+      for (long keys = bits; keys != 0; keys &= keys - 1) {
+        int ordinal = (word << 6) + Long.numberOfTrailingZeros(keys);
+        pending.values.set(ordinal, Float.floatToRawIntBits(snapshot.getValue(ordinal)));
+      }
+      pending.changed.getAndAccumulate(word, bits, (a, b) -> a | b);
+    }
+    if (!pending.pending) {
+      pending.pendingSince = System.nanoTime();
+    }
+    pending.pending = true;
+
+    if (waiting) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Gets the pending keys of a device, creating them on first use.
+   *
+   * @param device The device to get the pending keys for.
+   * @return The pending keys of the device.
+   */
+  private PendingKeys getPendingKeys(AnalogKeyboardDevice device) {
+    for (PendingKeys pending : pendingKeys) {
+      if (pending.device == device) {
+        return pending;
+      }
+    }
+    synchronized (this) {
+      for (PendingKeys pending : pendingKeys) {
+        if (pending.device == device) {
+          return pending;
+        }
+      }
+      PendingKeys pending = new PendingKeys(device);
+      PendingKeys[] updated = Arrays.copyOf(pendingKeys, pendingKeys.length + 1);
+      updated[pendingKeys.length] = pending;
+      pendingKeys = updated;
+      return pending;
+    }
+  }
+
+  /**
+   * Removes the pending keys of a device that has been removed.
+   *
+   * @param device The device to remove the pending keys for.
+   */
+  private synchronized void removePendingKeys(AnalogKeyboardDevice device) {
+    for (int i = 0; i < pendingKeys.length; i++) {
+      if (pendingKeys[i].device == device) {
+        PendingKeys[] updated = new PendingKeys[pendingKeys.length - 1];
+        System.arraycopy(pendingKeys, 0, updated, 0, i);
+        System.arraycopy(pendingKeys, i + 1, updated, i, updated.length - i);
+        pendingKeys = updated;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Delivers the pending keys of a device to the listener, if there are any.
+   *
+   * @param pending The pending keys to deliver.
+   * @return {@code true} if an event was delivered, {@code false} otherwise.
+   */
+  private boolean flush(PendingKeys pending) {
+    if (!pending.pending) {
+      return false;
+    }
+    pending.pending = false;
+    AnalogKeySnapshot snapshot = pending.snapshot;
+    snapshot.clearChanges();
+    for (int word = 0; word < AnalogKeySnapshot.WORD_COUNT; word++) {
+      for (long keys = pending.changed.getAndSet(word, 0L); keys != 0; keys &= keys - 1) {
+        int ordinal = (word << 6) + Long.numberOfTrailingZeros(keys);
+        snapshot.set(ordinal, Float.intBitsToFloat(pending.values.get(ordinal)));
+      }
+      // read after the changed bits, so the actuation states are at least as recent as them
+      snapshot.setToggledWord(word, pending.toggled.getAndSet(word, 0L));
+      snapshot.setActuatedWord(word, pending.actuated.get(word));
+    }
+    snapshot.stamp(pending.sequence, pending.timestamp);
+    if (!snapshot.hasChanges()) {
+      return false;
+    }
+    dispatch(KEYS_CHANGED, pending.device, snapshot, null, null, pending.pendingSince);
+    return true;
+  }
+
+  /**
+   * Delivers the pending keys of all devices to the listener.
+   *
+   * @return {@code true} if any event was delivered, {@code false} otherwise.
+   */
+  private boolean flushAll() {
+    boolean delivered = false;
+    for (PendingKeys pending : pendingKeys) {
+      delivered |= flush(pending);
+    }
+    return delivered;
+  }
+
+  /**
+   * Delivers the pending keys of a device before an event of that device is delivered, so the
+   * listener receives key changes before the device is closed or removed.
+   *
+   * @param device The device to deliver the pending keys for.
+   */
+  private void flushBefore(AnalogKeyboardDevice device) {
+    for (PendingKeys pending : pendingKeys) {
+      if (pending.device == device) {
+        flush(pending);
+        if (current.type == KEYBOARD_REMOVED) {
+          removePendingKeys(device);
+        }
+        return;
+      }
+    }
+  }
+
+  /** Runs the event thread, delivering published events until the subscription is closed. */
+  @Override
+  public void run() {
+    long next = 0;
+    while (!closed) {
+      OwnEvent own = ownOverflow.peek();
+      if (own != null && next >= own.after) {
+        ownOverflow.poll();
+        if (overflowPolicy == OverflowPolicy.COALESCE) {
+          flushBefore(own.device);
+        }
+        dispatch(own.type, own.device, own.snapshot, own.keyStates, own.message, own.publishedAt);
+        continue;
+      }
+      Slot slot = slots[(int) next & mask];
+      if (slot.sequence == next && read(slot, next)) {
+        next++;
+        consumed = next;
+        if (overflowPolicy == OverflowPolicy.COALESCE) {
+          flushBefore(current.device);
+        }
+        dispatch(
+            current.type,
+            current.device,
+            current.snapshot,
+            current.keyStates,
+            current.message,
+            current.publishedAt);
+        continue;
+      }
+      if (overflowPolicy == OverflowPolicy.COALESCE && flushAll()) {
+        continue;
+      }
+
+      long oldest = cursor.get() - slots.length;
+      if (overflowPolicy == OverflowPolicy.DROP_OLDEST && oldest > next) {
+        // producers have overwritten the slots we did not read yet
+        droppedEvents.addAndGet(oldest - next);
+        next = oldest;
+        consumed = next;
+        continue;
+      }
+      await(next);
+    }
+  }
+
+  /**
+   * Copies a slot into the event thread's own slot.
+   *
+   * @param slot The slot to read.
+   * @param sequence The sequence the slot is expected to hold.
+   * @return {@code true} if the slot was not overwritten while it was read, {@code false}
+   *     otherwise.
+   */
+  private boolean read(Slot slot, long sequence) {
+    current.type = slot.type;
+    current.device = slot.device;
+    current.message = slot.message;
+    current.keyStates = slot.keyStates;
+    current.publishedAt = slot.publishedAt;
+    if (current.type == KEYS_CHANGED || current.type == KEYS_ACTUATED) {
+      current.snapshot.copyFrom(slot.snapshot);
+    }
+    VarHandle.loadLoadFence();
+    return slot.sequence == sequence;
+  }
+
+  /**
+   * Waits until the event with the given sequence may have been published.
+   *
+   * @param next The sequence of the next event.
+   */
+  private void await(long next) {
+    for (int tries = 0; tries < SPIN_TRIES; tries++) {
+      if (slots[(int) next & mask].sequence == next || closed) {
+        return;
+      }
+      Thread.onSpinWait();
+    }
+    waiting = true;
+    if (slots[(int) next & mask].sequence != next
+        && (overflowPolicy != OverflowPolicy.DROP_OLDEST || cursor.get() - slots.length <= next)
+        && !hasPendingKeys()
+        && !closed) {
+      LockSupport.park(this);
+    }
+    waiting = false;
+  }
+
+  /**
+   * Checks whether any device has pending keys.
+   *
+   * @return {@code true} if there are pending keys, {@code false} otherwise.
+   */
+  private boolean hasPendingKeys() {
+    for (PendingKeys pending : pendingKeys) {
+      if (pending.pending) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Delivers an event to the listener.
+   *
+   * @param type The type of the event.
+   * @param device The device the event belongs to.
+   * @param snapshot The key states of a {@link #KEYS_CHANGED} or {@link #KEYS_ACTUATED} event.
+   * @param keyStates The key states of a {@link #KEY_PRESSED} event.
+   * @param message The message of a {@link #KEYBOARD_ERROR} event.
+   * @param publishedAt The {@link System#nanoTime()} the event has been published at.
+   */
+  private void dispatch(
+      int type,
+      AnalogKeyboardDevice device,
+      AnalogKeySnapshot snapshot,
+      Set<AnalogKeyState> keyStates,
+      String message,
+      long publishedAt) {
+    long start = System.nanoTime();
+    try {
+      switch (type) {
+        case KEYS_CHANGED -> listener.keysChanged(device, snapshot);
+        case KEY_PRESSED -> listener.keyPressed(device, keyStates);
+        case KEYBOARD_ADDED -> listener.keyboardAdded(device);
+        case KEYBOARD_REMOVED -> listener.keyboardRemoved(device);
+        case KEYBOARD_OPENED -> listener.keyboardOpened(device);
+        case KEYBOARD_CLOSED -> listener.keyboardClosed(device);
+        case KEYBOARD_ERROR -> listener.keyboardError(device, message);
+        case KEYS_ACTUATED -> listener.keysActuated(device, snapshot);
+        default -> throw new IllegalStateException("Unknown event type " + type);
+      }
+    } catch (RuntimeException e) {
+      // a failing listener must not stop the delivery of further events
+      metrics.recordFailure();
+    }
+    metrics.recordDelivery(start - publishedAt, System.nanoTime() - start);
+  }
+
+  /**
+   * Backs off while waiting for another thread, spinning first and parking eventually.
+   *
+   * @param tries The number of times the caller has already backed off.
+   */
+  private static void backOff(int tries) {
+    if (tries < SPIN_TRIES) {
+      Thread.onSpinWait();
+    } else if (tries < YIELD_TRIES) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+  }
+}
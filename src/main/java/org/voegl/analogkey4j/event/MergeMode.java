@@ -0,0 +1,11 @@
+package org.voegl.analogkey4j.event;
+
+/**
+ * Defines how the values of a key on several keyboards are merged by a {@link MergedKeyboardView}.
+ */
+public enum MergeMode {
+  /** The merged value of a key is its largest value on any keyboard. */
+  MAX,
+  /** The merged value of a key is the value last reported by any keyboard. */
+  LAST_WRITER
+}
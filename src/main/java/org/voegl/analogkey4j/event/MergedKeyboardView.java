@@ -0,0 +1,298 @@
+package org.voegl.analogkey4j.event;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+
+/**
+ * A single logical keyboard merging the keys of all attached keyboards, as described by its {@link
+ * MergeMode}. The view is subscribed inline, so it is updated by the reader thread of every
+ * keyboard right after a report has been parsed. The merged values can be polled from any thread,
+ * and are delivered to the view's own listeners as key events of the keyboard causing the change.
+ *
+ * <p>The merged table is updated without locks. With {@link MergeMode#MAX}, every update of a key
+ * bumps the key's version before the maximum is recomputed, and the maximum is recomputed again if
+ * the version moved meanwhile, so concurrent readers of different keyboards always settle on the
+ * maximum of their latest values.
+ *
+ * <p>Views are created by {@link HidServicesListenerImpl#createMergedView(MergeMode)} and must be
+ * closed once they are no longer used.
+ */
+public class MergedKeyboardView implements AnalogKeyboardListener, AutoCloseable {
+
+  /** The values of a single keyboard and the snapshot its merged events are built in. */
+  private static class Source {
+    final AnalogKeyboardDevice device;
+    final AtomicIntegerArray values = new AtomicIntegerArray(AnalogKeySnapshot.KEY_COUNT);
+    /* only accessed by the reader thread of the keyboard */
+    final AnalogKeySnapshot merged = new AnalogKeySnapshot();
+
+    Source(AnalogKeyboardDevice device) {
+      this.device = device;
+    }
+  }
+
+  private final MergeMode mode;
+  private final HidServicesListenerImpl owner;
+  private final AnalogKeyboardListenerList listeners = new AnalogKeyboardListenerList();
+  private final AtomicIntegerArray values = new AtomicIntegerArray(AnalogKeySnapshot.KEY_COUNT);
+  private final AtomicLongArray versions = new AtomicLongArray(AnalogKeySnapshot.KEY_COUNT);
+  private volatile Source[] sources = new Source[0];
+
+  /**
+   * Constructs a new view. It is fed once it is subscribed to the keyboards' events.
+   *
+   * @param mode How the values of a key on several keyboards are merged.
+   * @param owner The listener the view is subscribed to, which it unsubscribes from when closed.
+   */
+  MergedKeyboardView(MergeMode mode, HidServicesListenerImpl owner) {
+    this.mode = mode;
+    this.owner = owner;
+  }
+
+  /**
+   * Gets the merged pressed amount of a key.
+   *
+   * @param key The key to get the value for.
+   * @return The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public float getValue(HidKey key) {
+    return Float.intBitsToFloat(values.get(key.ordinal()));
+  }
+
+  /**
+   * Copies the merged pressed amount of all keys into an array indexed by {@link HidKey#ordinal()}.
+   * Each value is read atomically, but the view may be updated while it is copied.
+   *
+   * @param out The array to copy into, it must hold at least {@link AnalogKeySnapshot#KEY_COUNT}
+   *     values.
+   */
+  public void readAll(float[] out) {
+    if (out.length < AnalogKeySnapshot.KEY_COUNT) {
+      throw new IllegalArgumentException(
+          "Array must hold " + AnalogKeySnapshot.KEY_COUNT + " keys");
+    }
+    for (int i = 0; i < AnalogKeySnapshot.KEY_COUNT; i++) {
+      out[i] = Float.intBitsToFloat(values.get(i));
+    }
+  }
+
+  /**
+   * Adds a listener receiving the merged key events. Key events are delivered with the keyboard
+   * causing the change, and their snapshots hold the merged values of all keys, with the keys whose
+   * merged value changed marked. Other events are not delivered.
+   *
+   * @param listener The listener to be added.
+   * @param options The options describing how events are delivered to the listener.
+   */
+  public void addListener(AnalogKeyboardListener listener, ListenerOptions options) {
+    listeners.add(listener, options);
+  }
+
+  /**
+   * Removes a listener receiving the merged key events.
+   *
+   * @param listener The listener to be removed.
+   */
+  public void removeListener(AnalogKeyboardListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** Stops updating the view and removes its listeners. */
+  @Override
+  public void close() {
+    owner.removeListener(this);
+    listeners.clear();
+  }
+
+  /**
+   * Adds the current values of a keyboard to the view, before it reports any changes.
+   *
+   * @param keyboard The keyboard to add.
+   */
+  void attach(AnalogKeyboardDevice keyboard) {
+    getSource(keyboard);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+    Source source = getSource(keyboard);
+    AnalogKeySnapshot merged = source.merged;
+    merged.clearChanges();
+    for (int i = snapshot.nextChanged(0); i >= 0; i = snapshot.nextChanged(i + 1)) {
+      update(source, i, snapshot.getValue(i), merged);
+    }
+    merged.stamp(snapshot.getSequence(), snapshot.getTimestamp());
+    fire(source);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void keyPressed(AnalogKeyboardDevice keyboard, Set<AnalogKeyState> keyStates) {}
+
+  /** {@inheritDoc} */
+  @Override
+  public void keyboardAdded(AnalogKeyboardDevice keyboard) {}
+
+  /** {@inheritDoc} */
+  @Override
+  public void keyboardRemoved(AnalogKeyboardDevice keyboard) {
+    release(keyboard);
+    removeSource(keyboard);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void keyboardOpened(AnalogKeyboardDevice keyboard) {}
+
+  /** {@inheritDoc} */
+  @Override
+  public void keyboardClosed(AnalogKeyboardDevice keyboard) {
+    release(keyboard);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void keyboardError(AnalogKeyboardDevice keyboard, String message) {}
+
+  /**
+   * Releases all keys of a keyboard that is closed, so they no longer contribute to the view.
+   *
+   * @param keyboard The keyboard that is closed.
+   */
+  private void release(AnalogKeyboardDevice keyboard) {
+    for (Source source : sources) {
+      if (source.device == keyboard) {
+        AnalogKeySnapshot merged = source.merged;
+        merged.clearChanges();
+        for (int i = 0; i < AnalogKeySnapshot.KEY_COUNT; i++) {
+          if (source.values.get(i) != 0) {
+            update(source, i, 0.0f, merged);
+          }
+        }
+        fire(source);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Updates the value of a key on a keyboard and merges it into the view. If the merged value
+   * changes, the key is marked changed in the given snapshot.
+   *
+   * @param source The keyboard reporting the value.
+   * @param ordinal The ordinal of the key.
+   * @param value The new value of the key on the keyboard.
+   * @param merged The snapshot to mark the key changed in, or {@code null}.
+   */
+  private void update(Source source, int ordinal, float value, AnalogKeySnapshot merged) {
+    int bits = Float.floatToRawIntBits(value);
+    source.values.set(ordinal, bits);
+    int previous;
+    int current;
+    if (mode == MergeMode.LAST_WRITER) {
+      previous = values.getAndSet(ordinal, bits);
+      current = bits;
+    } else {
+      previous = values.get(ordinal);
+      versions.incrementAndGet(ordinal);
+      long version;
+      do {
+        version = versions.get(ordinal);
+        current = max(ordinal);
+        values.set(ordinal, current);
+      } while (versions.get(ordinal) != version);
+    }
+    if (current != previous && merged != null) {
+      merged.set(ordinal, Float.intBitsToFloat(current));
+    }
+  }
+
+  /**
+   * Computes the largest value of a key on any keyboard.
+   *
+   * @param ordinal The ordinal of the key.
+   * @return The float bits of the largest value.
+   */
+  private int max(int ordinal) {
+    float max = 0.0f;
+    for (Source source : sources) {
+      max = Math.max(max, Float.intBitsToFloat(source.values.get(ordinal)));
+    }
+    return Float.floatToRawIntBits(max);
+  }
+
+  /**
+   * Delivers the keys whose merged value changed to the view's listeners.
+   *
+   * @param source The keyboard causing the change.
+   */
+  private void fire(Source source) {
+    AnalogKeySnapshot merged = source.merged;
+    if (!merged.hasChanges() || listeners.isEmpty()) {
+      return;
+    }
+    // other keyboards may have changed the keys that are not marked
+    for (int i = 0; i < AnalogKeySnapshot.KEY_COUNT; i++) {
+      merged.load(i, Float.intBitsToFloat(values.get(i)));
+    }
+    listeners.fireKeysChanged(source.device, merged);
+  }
+
+  /**
+   * Gets the source of a keyboard, creating it on first use. A keyboard that has been open before
+   * the view was created contributes its current values.
+   *
+   * @param keyboard The keyboard to get the source for.
+   * @return The source of the keyboard.
+   */
+  private Source getSource(AnalogKeyboardDevice keyboard) {
+    for (Source source : sources) {
+      if (source.device == keyboard) {
+        return source;
+      }
+    }
+    Source source;
+    synchronized (this) {
+      for (Source existing : sources) {
+        if (existing.device == keyboard) {
+          return existing;
+        }
+      }
+      source = new Source(keyboard);
+      Source[] updated = Arrays.copyOf(sources, sources.length + 1);
+      updated[sources.length] = source;
+      sources = updated;
+    }
+    float[] current = new float[AnalogKeySnapshot.KEY_COUNT];
+    keyboard.readAll(current);
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] != 0.0f) {
+        // seeded on the thread creating the view, which must not touch the merged snapshot
+        update(source, i, current[i], null);
+      }
+    }
+    return source;
+  }
+
+  /**
+   * Removes the source of a keyboard that has been removed.
+   *
+   * @param keyboard The keyboard to remove the source for.
+   */
+  private synchronized void removeSource(AnalogKeyboardDevice keyboard) {
+    for (int i = 0; i < sources.length; i++) {
+      if (sources[i].device == keyboard) {
+        Source[] updated = new Source[sources.length - 1];
+        System.arraycopy(sources, 0, updated, 0, i);
+        System.arraycopy(sources, i + 1, updated, i, updated.length - i);
+        sources = updated;
+        return;
+      }
+    }
+  }
+}
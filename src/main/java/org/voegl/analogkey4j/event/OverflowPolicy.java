@@ -0,0 +1,19 @@
+package org.voegl.analogkey4j.event;
+
+/**
+ * Defines how events are handled if a listener falls behind and its bounded event buffer is full.
+ */
+public enum OverflowPolicy {
+  /** The firing thread waits until the listener has made room. No events are lost. */
+  BLOCK,
+  /** The oldest pending events are overwritten. The firing thread never waits for the listener. */
+  DROP_OLDEST,
+  /**
+   * Pending key events of the same keyboard are merged into one change per key, the latest value
+   * wins. The firing thread never waits for key events and the amount of pending key events is
+   * bounded by the number of keys. Other events are handled like {@link #BLOCK}, the pending key
+   * events of their keyboard are delivered before them. The values of an actuation are merged
+   * before it is published, so they reach the listener before the actuation does.
+   */
+  COALESCE
+}
@@ -0,0 +1,94 @@
+package org.voegl.analogkey4j.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * Counts the reports read from a single analog keyboard and how long parsing them took. Samples are
+ * recorded by the device's reader without allocating, snapshots can be taken from any thread.
+ */
+public final class DeviceMetrics {
+
+  /* the window the report rate is measured over */
+  private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+  private final LongAdder reports = new LongAdder();
+  private final LongAdder readErrors = new LongAdder();
+  private final LatencyHistogram parseNanos = new LatencyHistogram();
+  /* the current rate window, only written by the reader */
+  private volatile long windowStart = System.nanoTime();
+  private volatile long windowReports;
+  private volatile double reportsPerSecond;
+
+  /**
+   * Records a report that has been read and parsed.
+   *
+   * @param now The {@link System#nanoTime()} after parsing the report.
+   * @param parseNanos The time parsing the report took in nanoseconds.
+   */
+  public void recordReport(long now, long parseNanos) {
+    reports.increment();
+    this.parseNanos.record(parseNanos);
+    long elapsed = now - windowStart;
+    if (elapsed >= RATE_WINDOW_NANOS) {
+      long total = reports.sum();
+      reportsPerSecond = (total - windowReports) * 1e9 / elapsed;
+      windowReports = total;
+      windowStart = now;
+    }
+  }
+
+  /** Records a failed read. */
+  public void recordReadError() {
+    readErrors.increment();
+  }
+
+  /**
+   * Takes a snapshot of the metrics.
+   *
+   * @param path The path of the device.
+   * @return The snapshot of the metrics.
+   */
+  public Snapshot snapshot(String path) {
+    long total = reports.sum();
+    double rate = reportsPerSecond;
+    long elapsed = System.nanoTime() - windowStart;
+    if (elapsed >= 2 * RATE_WINDOW_NANOS) {
+      // the reader has not closed a window for a while, so the keyboard is idle or closed
+      rate = (total - windowReports) * 1e9 / elapsed;
+    }
+    return new Snapshot(path, total, readErrors.sum(), rate, parseNanos.snapshot());
+  }
+
+  /** An immutable snapshot of the {@link DeviceMetrics} of a keyboard. */
+  public static final class Snapshot {
+
+    /** The path of the device. */
+    @Getter private final String path;
+
+    /** The number of reports read since the device has been attached. */
+    @Getter private final long reports;
+
+    /** The number of failed reads since the device has been attached. */
+    @Getter private final long readErrors;
+
+    /** The number of reports read per second over the last second. */
+    @Getter private final double reportsPerSecond;
+
+    /** The time parsing and processing a report took in nanoseconds. */
+    @Getter private final LatencyHistogram.Snapshot parseNanos;
+
+    private Snapshot(
+        String path,
+        long reports,
+        long readErrors,
+        double reportsPerSecond,
+        LatencyHistogram.Snapshot parseNanos) {
+      this.path = path;
+      this.reports = reports;
+      this.readErrors = readErrors;
+      this.reportsPerSecond = reportsPerSecond;
+      this.parseNanos = parseNanos;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package org.voegl.analogkey4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * A histogram of durations in nanoseconds with logarithmic buckets, similar to an HDR histogram.
+ * Every power of two is split into eight linear buckets, so recorded values are kept with a
+ * precision of 12.5% over the whole range of a {@code long}. Recording a value does not allocate
+ * and does not take any locks.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /* enough buckets for every non-negative long */
+  static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value. Negative values are recorded as {@code 0}.
+   *
+   * @param nanos The value in nanoseconds.
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    counts.incrementAndGet(bucketOf(value));
+    sum.add(value);
+    long current;
+    while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+      // retry until this value or a larger one is stored
+    }
+  }
+
+  /**
+   * Takes a snapshot of the recorded values. Values recorded concurrently may be missing from the
+   * snapshot.
+   *
+   * @return The snapshot of the recorded values.
+   */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      copy[i] = counts.get(i);
+      count += copy[i];
+    }
+    return new Snapshot(copy, count, sum.sum(), max.get());
+  }
+
+  /**
+   * Gets the bucket a value is counted in.
+   *
+   * @param value The non-negative value.
+   * @return The index of the bucket.
+   */
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Gets the largest value counted in a bucket.
+   *
+   * @param bucket The index of the bucket.
+   * @return The largest value of the bucket.
+   */
+  static long highestValueOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /** An immutable snapshot of a {@link LatencyHistogram}. */
+  public static final class Snapshot {
+
+    /** The number of recorded values. */
+    @Getter private final long count;
+
+    /** The mean of the recorded values in nanoseconds. */
+    @Getter private final double mean;
+
+    /** The largest recorded value in nanoseconds. */
+    @Getter private final long max;
+
+    private final long[] counts;
+
+    private Snapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.mean = count > 0 ? (double) sum / count : 0.0;
+      this.max = max;
+    }
+
+    /**
+     * Gets the value below which the given percentage of the recorded values fall. The value is the
+     * upper bound of its bucket, but never larger than the largest recorded value.
+     *
+     * @param percentile The percentage between {@code 0.0} and {@code 100.0}.
+     * @return The value at the percentile in nanoseconds, {@code 0} if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (!(percentile >= 0.0 && percentile <= 100.0)) {
+        throw new IllegalArgumentException("Invalid percentile " + percentile);
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(highestValueOf(i), max);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Gets the median of the recorded values.
+     *
+     * @return The median in nanoseconds.
+     */
+    public long getP50() {
+      return getValueAtPercentile(50.0);
+    }
+
+    /**
+     * Gets the 99th percentile of the recorded values.
+     *
+     * @return The 99th percentile in nanoseconds.
+     */
+    public long getP99() {
+      return getValueAtPercentile(99.0);
+    }
+
+    /**
+     * Gets the 99.9th percentile of the recorded values.
+     *
+     * @return The 99.9th percentile in nanoseconds.
+     */
+    public long getP999() {
+      return getValueAtPercentile(99.9);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package org.voegl.analogkey4j.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * Measures the delivery of events to a single listener: how long events wait to be delivered and
+ * how long the listener takes to handle them. Samples are recorded without allocating.
+ */
+public final class ListenerMetrics {
+
+  private final LongAdder events = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LatencyHistogram latencyNanos = new LatencyHistogram();
+  private final LatencyHistogram callbackNanos = new LatencyHistogram();
+
+  /**
+   * Records an event delivered to the listener.
+   *
+   * @param latencyNanos The time from publishing the event until the listener was called.
+   * @param callbackNanos The time the listener took to handle the event.
+   */
+  public void recordDelivery(long latencyNanos, long callbackNanos) {
+    events.increment();
+    this.latencyNanos.record(latencyNanos);
+    this.callbackNanos.record(callbackNanos);
+  }
+
+  /** Records an event the listener failed to handle by throwing an exception. */
+  public void recordFailure() {
+    failures.increment();
+  }
+
+  /**
+   * Takes a snapshot of the metrics.
+   *
+   * @param listener A description of the listener.
+   * @param queueDepth The number of events waiting to be delivered.
+   * @param droppedEvents The number of events dropped before they were delivered.
+   * @return The snapshot of the metrics.
+   */
+  public Snapshot snapshot(String listener, long queueDepth, long droppedEvents) {
+    return new Snapshot(
+        listener,
+        events.sum(),
+        failures.sum(),
+        queueDepth,
+        droppedEvents,
+        latencyNanos.snapshot(),
+        callbackNanos.snapshot());
+  }
+
+  /** An immutable snapshot of the {@link ListenerMetrics} of a listener. */
+  public static final class Snapshot {
+
+    /** A description of the listener. */
+    @Getter private final String listener;
+
+    /** The number of events delivered to the listener. */
+    @Getter private final long events;
+
+    /** The number of delivered events the listener failed to handle by throwing an exception. */
+    @Getter private final long failures;
+
+    /** The number of events waiting to be delivered. */
+    @Getter private final long queueDepth;
+
+    /** The number of events dropped before they were delivered. */
+    @Getter private final long droppedEvents;
+
+    /** The time from publishing an event until the listener was called in nanoseconds. */
+    @Getter private final LatencyHistogram.Snapshot latencyNanos;
+
+    /** The time the listener took to handle an event in nanoseconds. */
+    @Getter private final LatencyHistogram.Snapshot callbackNanos;
+
+    private Snapshot(
+        String listener,
+        long events,
+        long failures,
+        long queueDepth,
+        long droppedEvents,
+        LatencyHistogram.Snapshot latencyNanos,
+        LatencyHistogram.Snapshot callbackNanos) {
+      this.listener = listener;
+      this.events = events;
+      this.failures = failures;
+      this.queueDepth = queueDepth;
+      this.droppedEvents = droppedEvents;
+      this.latencyNanos = latencyNanos;
+      this.callbackNanos = callbackNanos;
+    }
+  }
+}
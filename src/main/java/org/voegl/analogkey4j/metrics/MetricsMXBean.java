@@ -0,0 +1,15 @@
+package org.voegl.analogkey4j.metrics;
+
+/**
+ * Exposes the metrics of a manager through JMX, see {@link
+ * org.voegl.analogkey4j.AnalogKeyboardManager#registerMetricsMBean()}.
+ */
+public interface MetricsMXBean {
+
+  /**
+   * Takes a snapshot of the metrics of all keyboards and listeners.
+   *
+   * @return The snapshot of the metrics.
+   */
+  MetricsSnapshot getMetrics();
+}
@@ -0,0 +1,26 @@
+package org.voegl.analogkey4j.metrics;
+
+import java.util.List;
+import lombok.Getter;
+
+/** An immutable snapshot of the metrics of all keyboards and listeners of a manager. */
+public final class MetricsSnapshot {
+
+  /** The metrics of the attached keyboards. */
+  @Getter private final List<DeviceMetrics.Snapshot> devices;
+
+  /** The metrics of the subscribed listeners. */
+  @Getter private final List<ListenerMetrics.Snapshot> listeners;
+
+  /**
+   * Constructs a new snapshot.
+   *
+   * @param devices The metrics of the attached keyboards.
+   * @param listeners The metrics of the subscribed listeners.
+   */
+  public MetricsSnapshot(
+      List<DeviceMetrics.Snapshot> devices, List<ListenerMetrics.Snapshot> listeners) {
+    this.devices = List.copyOf(devices);
+    this.listeners = List.copyOf(listeners);
+  }
+}
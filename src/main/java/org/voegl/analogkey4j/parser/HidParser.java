@@ -1,8 +1,8 @@
 package org.voegl.analogkey4j.parser;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Set;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
 import org.voegl.analogkey4j.event.AnalogKeyState;
 import org.voegl.analogkey4j.key.HidKey;
 import org.voegl.analogkey4j.key.HidKeyMap;
@@ -10,11 +10,22 @@ import org.voegl.analogkey4j.key.HidKeyMap;
 /**
  * Provides a generic implementation for an HID message parser that is able to parse most analog
  * keyboard's HID messages.
+ *
+ * <p>Only keys whose value has moved since the last message are reported, so a held key does not
+ * produce any changes. A change epsilon additionally suppresses jitter smaller than the epsilon,
+ * while releases are always reported.
+ *
+ * <p>A parser keeps the state of the last parsed message to detect released keys, so every device
+ * must use its own instance. Parsers are not thread-safe and are meant to be used by the device's
+ * reader thread only.
  */
 public class HidParser {
   private static final float SAFE_ZERO = (float) 1 / (2 * 0xFF);
-  protected Set<AnalogKeyState> lastKeyStates = Collections.emptySet();
   private final HidKeyMap keyMap;
+  private final AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+  private final long[] lastPressed = new long[(AnalogKeySnapshot.KEY_COUNT + 63) >>> 6];
+  private final long[] present = new long[lastPressed.length];
+  private float changeEpsilon;
 
   /**
    * Constructs an HID parser that depends on the specific key map used by the keyboard model.
@@ -26,33 +37,60 @@ public class HidParser {
   }
 
   /**
-   * Helper function that fills reset (0 pressure) key states for keys, that have been pressed in
-   * the last sent message, but are not pressed anymore now.
+   * Gets the minimum distance a key's value must move from its last reported value to be reported
+   * again.
    *
-   * @param states The already parsed states from the current message.
+   * @return The change epsilon, {@code 0.0} reports every change.
    */
-  private synchronized void resetLastKeys(Set<AnalogKeyState> states) {
-    Set<HidKey> keys = new HashSet<>();
-    for (AnalogKeyState state : states) {
-      keys.add(state.key());
+  public float getChangeEpsilon() {
+    return changeEpsilon;
+  }
+
+  /**
+   * Sets the minimum distance a key's value must move from its last reported value to be reported
+   * again. Values are compared to the last reported value rather than the last message, so slow
+   * movements are reported once they add up to more than the epsilon. A key reaching {@code 0.0} is
+   * always reported.
+   *
+   * @param changeEpsilon The change epsilon between {@code 0.0} and {@code 1.0} (exclusive).
+   */
+  public void setChangeEpsilon(float changeEpsilon) {
+    if (!(changeEpsilon >= 0.0f && changeEpsilon < 1.0f)) {
+      throw new IllegalArgumentException("Invalid change epsilon " + changeEpsilon);
     }
-    for (AnalogKeyState state : lastKeyStates) {
-      if (state.value() > SAFE_ZERO && !keys.contains(state.key())) {
-        states.add(new AnalogKeyState(state.key(), 0.0f));
+    this.changeEpsilon = changeEpsilon;
+  }
+
+  /**
+   * Helper function that fills reset (0 pressure) key states for keys, that have been pressed in
+   * the last sent message, but are not present in the current message anymore.
+   */
+  private void resetLastKeys() {
+    for (int word = 0; word < lastPressed.length; word++) {
+      long released = lastPressed[word] & ~present[word];
+      while (released != 0) {
+        snapshot.set((word << 6) + Long.numberOfTrailingZeros(released), 0.0f);
+        released &= released - 1;
       }
     }
   }
 
   /**
    * Provides a (as far as I know) generic implementation to read analog key press values from an
-   * HID message.
+   * HID message into a reusable {@link AnalogKeySnapshot}. This does not allocate; the returned
+   * snapshot is owned by this parser and overwritten by the next call. It holds the last reported
+   * value of every key, and only the keys that moved with this message are marked changed.
+   *
+   * <p>The message buffer is owned by the caller, which reuses it for the next message. Parsers
+   * must only read it during this call and must never keep a reference to it.
    *
    * @param data The HID message in plain bytes.
    * @param len The length of the HID message.
-   * @return A {@link Set} of {@link AnalogKeyState} which have changed.
+   * @return This parser's {@link AnalogKeySnapshot}, with the keys that moved marked changed.
    */
-  public synchronized Set<AnalogKeyState> parse(byte[] data, int len) {
-    Set<AnalogKeyState> states = new HashSet<>();
+  public AnalogKeySnapshot parseSnapshot(byte[] data, int len) {
+    snapshot.clearChanges();
+    Arrays.fill(present, 0L);
 
     for (int i = 0; i < len - 2; i += 3) {
       byte type = data[i];
@@ -64,14 +102,47 @@ public class HidParser {
       if (key == (byte) 0) {
         break;
       }
-      byte value = data[i + 2];
-      float pressed = (value & 0xFF) / 255.0f;
+      HidKey hidKey = keyMap.getKey(key);
+      if (hidKey == null) {
+        continue;
+      }
+      int ordinal = hidKey.ordinal();
+      float value = (data[i + 2] & 0xFF) / 255.0f;
+      float last = snapshot.getValue(ordinal);
 
-      states.add(new AnalogKeyState(keyMap.getKey(key), pressed));
+      if (Math.abs(value - last) > changeEpsilon || (value == 0.0f && last != 0.0f)) {
+        snapshot.set(ordinal, value);
+      }
+      present[ordinal >>> 6] |= 1L << ordinal;
     }
 
-    resetLastKeys(states);
-    lastKeyStates = states;
-    return states;
+    resetLastKeys();
+
+    // remember the keys with a non-zero value for the release detection of the next message
+    for (int word = 0; word < present.length; word++) {
+      long keys = present[word];
+      long nonZero = 0;
+      while (keys != 0) {
+        int bit = Long.numberOfTrailingZeros(keys);
+        if (snapshot.getValue((word << 6) + bit) > SAFE_ZERO) {
+          nonZero |= 1L << bit;
+        }
+        keys &= keys - 1;
+      }
+      lastPressed[word] = nonZero;
+    }
+    return snapshot;
+  }
+
+  /**
+   * Provides a (as far as I know) generic implementation to read analog key press values from an
+   * HID message. This is an adapter on top of {@link #parseSnapshot(byte[], int)}.
+   *
+   * @param data The HID message in plain bytes.
+   * @param len The length of the HID message.
+   * @return A {@link Set} of {@link AnalogKeyState} which have changed.
+   */
+  public Set<AnalogKeyState> parse(byte[] data, int len) {
+    return parseSnapshot(data, len).toKeyStates();
   }
 }
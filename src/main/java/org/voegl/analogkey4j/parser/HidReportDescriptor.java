@@ -0,0 +1,97 @@
+package org.voegl.analogkey4j.parser;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A utility class reading the information needed by the library from an HID report descriptor. It
+ * only understands the items affecting report sizes and ignores everything else.
+ */
+public class HidReportDescriptor {
+
+  private static final int TYPE_MAIN = 0;
+  private static final int TYPE_GLOBAL = 1;
+  private static final int TAG_INPUT = 0x8;
+  private static final int TAG_REPORT_SIZE = 0x7;
+  private static final int TAG_REPORT_ID = 0x8;
+  private static final int TAG_REPORT_COUNT = 0x9;
+  private static final int TAG_PUSH = 0xA;
+  private static final int TAG_POP = 0xB;
+  private static final int LONG_ITEM = 0xFE;
+  private static final int MAX_REPORT_ID = 0xFF;
+
+  /** Class must not be instantiated. */
+  private HidReportDescriptor() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Gets the length of the largest input report described by an HID report descriptor. If the
+   * descriptor uses report ids, the length includes the leading report id byte as it is returned by
+   * reads.
+   *
+   * @param descriptor The raw HID report descriptor.
+   * @param len The length of the descriptor.
+   * @return The length of the largest input report in bytes, or {@code 0} if there is none.
+   */
+  public static int getMaxInputReportLength(byte[] descriptor, int len) {
+    long[] inputBits = new long[MAX_REPORT_ID + 1];
+    Deque<int[]> stack = new ArrayDeque<>();
+    int reportSize = 0;
+    int reportCount = 0;
+    int reportId = 0;
+
+    int i = 0;
+    while (i < len) {
+      int prefix = descriptor[i] & 0xFF;
+      if (prefix == LONG_ITEM) {
+        // long items are reserved and carry no size information
+        int dataSize = i + 1 < len ? descriptor[i + 1] & 0xFF : 0;
+        i += 3 + dataSize;
+        continue;
+      }
+
+      int dataSize = prefix & 0x3;
+      if (dataSize == 3) {
+        dataSize = 4;
+      }
+      int type = (prefix >> 2) & 0x3;
+      int tag = (prefix >> 4) & 0xF;
+      int data = 0;
+      for (int b = 0; b < dataSize && i + 1 + b < len; b++) {
+        data |= (descriptor[i + 1 + b] & 0xFF) << (8 * b);
+      }
+      i += 1 + dataSize;
+
+      if (type == TYPE_MAIN && tag == TAG_INPUT) {
+        inputBits[reportId] += (long) reportSize * reportCount;
+      } else if (type == TYPE_GLOBAL) {
+        switch (tag) {
+          case TAG_REPORT_SIZE -> reportSize = data;
+          case TAG_REPORT_COUNT -> reportCount = data;
+          case TAG_REPORT_ID -> reportId = data & MAX_REPORT_ID;
+          case TAG_PUSH -> stack.push(new int[] {reportSize, reportCount, reportId});
+          case TAG_POP -> {
+            if (!stack.isEmpty()) {
+              int[] state = stack.pop();
+              reportSize = state[0];
+              reportCount = state[1];
+              reportId = state[2];
+            }
+          }
+          default -> {
+            // not relevant for report sizes
+          }
+        }
+      }
+    }
+
+    long maxLength = 0;
+    for (int id = 0; id <= MAX_REPORT_ID; id++) {
+      if (inputBits[id] > 0) {
+        maxLength = Math.max(maxLength, (inputBits[id] + 7) / 8 + (id != 0 ? 1 : 0));
+      }
+    }
+    return (int) Math.min(maxLength, Integer.MAX_VALUE);
+  }
+}
@@ -1,80 +1,349 @@
 package org.voegl.analogkey4j.plugins;
 
+import java.io.UncheckedIOException;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 import lombok.Getter;
 import org.hid4java.HidDevice;
-import org.voegl.analogkey4j.event.AnalogKeyState;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
 import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.metrics.DeviceMetrics;
 import org.voegl.analogkey4j.parser.HidParser;
+import org.voegl.analogkey4j.parser.HidReportDescriptor;
+import org.voegl.analogkey4j.processing.KeyProcessor;
+import org.voegl.analogkey4j.processing.KeyProfiles;
+import org.voegl.analogkey4j.record.ReportRecorder;
+import org.voegl.analogkey4j.state.KeyStateTable;
+import org.voegl.analogkey4j.transport.Hid4javaTransport;
+import org.voegl.analogkey4j.transport.HidTransport;
 
 /**
  * Provides an abstract implementation for an analog keyboard plugin. It provides generic methods to
  * interact with analog keyboard, such as opening, reading and closing.
  */
 public abstract class AnalogKeyboardDevice {
-  @Getter protected final HidDevice device;
+  @Getter protected final HidTransport transport;
   private final AnalogKeyboardListenerList listeners;
-  /* NOTE: this may not always be 48 byte */
-  private static final int HID_MESSAGE_SIZE = 48;
-  private Thread readThread;
-  private final HidParser parser;
-  @Getter private boolean readDone = true;
+  /* used if the report size is neither declared nor found in the report descriptor */
+  private static final int FALLBACK_REPORT_SIZE = 1024;
+  /* the maximum length of an HID report descriptor */
+  private static final int MAX_DESCRIPTOR_SIZE = 4096;
+  /* the pause after a failed read, so a failing device is not read in a tight loop */
+  private static final long ERROR_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+  /* the delay before the next reader pool turn or virtual thread poll after the first one without
+   * reports */
+  private static final long MIN_IDLE_TURN_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+  /* the delay between reader pool turns or virtual thread polls of a keyboard that stays idle, which
+   * bounds the latency of the first report after a pause */
+  private static final long MAX_IDLE_TURN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+  /* the maximum number of reports read in one reader pool turn, for fairness between devices */
+  private static final int POOLED_READS_PER_TURN = 16;
+  /* the thread reading this device, null in shared pool mode */
+  private volatile Thread readThread;
+  private final Supplier<HidParser> parserFactory;
+  private HidParser parser;
+  /* applies the key profiles, if any are configured */
+  private KeyProcessor processor;
+  /* owned by the reader thread and reused for every report */
+  private byte[] readBuffer;
+  @Getter private int reportSize;
+  /* the maximum time a single read blocks, set when the device is opened */
+  private int readTimeoutMillis;
+  /* the sequence number of the latest report, owned by the reader */
+  private long reportSequence;
+  @Getter private volatile boolean readDone = true;
+  /* true from opening the device until reading has stopped and the device is closed */
+  private volatile boolean reading;
+  private volatile ReaderPool readerPool;
+  /* completed once reading has stopped and the device is closed */
+  private volatile CompletableFuture<Void> closed = CompletableFuture.completedFuture(null);
+  private final KeyStateTable keyStates = new KeyStateTable();
+  private volatile ReportRecorder.Track recording;
+  private volatile AnalogKeyboardOptions options = AnalogKeyboardOptions.DEFAULT;
+
+  /** The metrics of the reports read from this device. */
+  @Getter private final DeviceMetrics metrics = new DeviceMetrics();
 
   /**
    * Constructs a new analog keyboard plugin with device-specific functionality.
    *
-   * @param device The underlying {@link HidDevice}.
-   * @param parser A parser specific to this device.
+   * @param transport The transport the device is read from.
+   * @param parserFactory A factory creating parsers specific to this device. A new parser is
+   *     created every time the device is opened, so parsers never share state between devices.
    * @param listeners Event listeners listening for device changes.
    */
   public AnalogKeyboardDevice(
-      HidDevice device, HidParser parser, AnalogKeyboardListenerList listeners) {
-    this.device = device;
-    this.parser = parser;
+      HidTransport transport,
+      Supplier<HidParser> parserFactory,
+      AnalogKeyboardListenerList listeners) {
+    this.transport = transport;
+    this.parserFactory = parserFactory;
     this.listeners = listeners;
   }
 
+  /**
+   * Constructs a new analog keyboard plugin with device-specific functionality, reading from a
+   * physical device using hid4java.
+   *
+   * @param device The underlying {@link HidDevice}.
+   * @param parserFactory A factory creating parsers specific to this device. A new parser is
+   *     created every time the device is opened, so parsers never share state between devices.
+   * @param listeners Event listeners listening for device changes.
+   */
+  public AnalogKeyboardDevice(
+      HidDevice device, Supplier<HidParser> parserFactory, AnalogKeyboardListenerList listeners) {
+    this(new Hid4javaTransport(device), parserFactory, listeners);
+  }
+
   /**
    * Gets a {@link Runnable} that continuously reads data from the underlying device until the
-   * {@link #close()} method is called.
+   * {@link #close()} method is called. Reads block in the HID driver until a report arrives or the
+   * configured {@link AnalogKeyboardOptions#getReadTimeout()} expires. hidapi cannot interrupt a
+   * blocked read, and closing the handle under it is not safe, so the timeout is the latency of
+   * noticing a close. An idle keyboard wakes up once per timeout, which is the trade-off between
+   * idle wakeups and close latency.
    *
    * @return A {@link Runnable} that can read from the device.
    */
-  private synchronized Runnable getReadRunnable() {
+  private Runnable getReadRunnable() {
     return () -> {
-      readDone = false;
+      byte[] data = readBuffer;
+      int timeoutMillis = readTimeoutMillis;
       while (!readDone) {
-        byte[] data = new byte[HID_MESSAGE_SIZE];
-        int val = device.read(data, 1000);
-
-        switch (val) {
-          case -1:
-            // error
-            listeners.fireKeyboardError(this, device.getLastErrorMessage());
-            break;
-          case 0:
-            // nothing to read
-            break;
-          default:
-            // read success
-            Set<AnalogKeyState> keyStates = parser.parse(data, val);
-            listeners.fireKeyPressed(this, keyStates);
-            break;
+        if (readReport(data, timeoutMillis) < 0 && !readDone) {
+          LockSupport.parkNanos(this, ERROR_BACKOFF_NANOS);
+        }
+      }
+      finishReading();
+    };
+  }
+
+  /**
+   * Gets a {@link Runnable} that polls the underlying device on a virtual thread until the {@link
+   * #close()} method is called. A read blocked in native code would pin the carrier thread of the
+   * virtual thread, so the device is polled without blocking instead. While reports arrive they are
+   * read right away, otherwise the thread parks for a delay that doubles with every empty poll up
+   * to a few milliseconds, which unmounts it from its carrier. A close unparks the thread, so it is
+   * noticed right away.
+   *
+   * @return A {@link Runnable} that can read from the device.
+   */
+  private Runnable getPollingReadRunnable() {
+    return () -> {
+      byte[] data = readBuffer;
+      long idleDelayNanos = 0;
+      while (!readDone) {
+        int val = readReport(data, 0);
+        if (val > 0) {
+          idleDelayNanos = 0;
+        } else if (!readDone) {
+          idleDelayNanos = nextIdleDelay(idleDelayNanos);
+          LockSupport.parkNanos(this, val < 0 ? ERROR_BACKOFF_NANOS : idleDelayNanos);
+        }
+      }
+      finishReading();
+    };
+  }
+
+  /**
+   * Gets the delay before polling an idle device again.
+   *
+   * @param idleDelayNanos The previous delay, {@code 0} after a report has been read.
+   * @return The next delay in nanoseconds.
+   */
+  private static long nextIdleDelay(long idleDelayNanos) {
+    return Math.min(
+        Math.max(idleDelayNanos * 2, MIN_IDLE_TURN_DELAY_NANOS), MAX_IDLE_TURN_DELAY_NANOS);
+  }
+
+  /**
+   * Gets a {@link Runnable} that reads a single turn of a {@link ReaderPool}. A turn polls the
+   * reports that are ready without blocking the pool thread. The next turn runs immediately after a
+   * turn with reports, otherwise after a delay that doubles with every empty turn up to a few
+   * milliseconds. An idle keyboard is therefore polled about a hundred times a second, and the
+   * first report after a pause is delayed by at most that maximum delay.
+   *
+   * @param pool The pool the turns are run on.
+   * @return A {@link Runnable} that can read from the device.
+   */
+  private Runnable getPooledReadRunnable(ReaderPool pool) {
+    return new Runnable() {
+      /* the delay since the last turn with reports, 0 while reports arrive */
+      private long idleDelayNanos;
+
+      @Override
+      public void run() {
+        byte[] data = readBuffer;
+        int reports = 0;
+        int val = 0;
+        while (reports < POOLED_READS_PER_TURN && !readDone && (val = readReport(data, 0)) > 0) {
+          reports++;
         }
+        if (!readDone) {
+          try {
+            if (val < 0) {
+              // back off without holding the pool thread the other keyboards are read on
+              pool.schedule(this, ERROR_BACKOFF_NANOS);
+            } else if (reports > 0) {
+              idleDelayNanos = 0;
+              pool.execute(this);
+            } else {
+              idleDelayNanos = nextIdleDelay(idleDelayNanos);
+              pool.schedule(this, idleDelayNanos);
+            }
+            return;
+          } catch (RejectedExecutionException e) {
+            // the pool has been shut down
+            readDone = true;
+          }
+        }
+        finishReading();
       }
-      device.close();
-      listeners.fireKeyboardClosed(this);
     };
   }
 
+  /**
+   * Reads and dispatches a single report. A failed read is reported to the listeners, backing off
+   * before the next read is left to the caller.
+   *
+   * @param data The buffer to read the report into.
+   * @param timeoutMillis The maximum time to wait for a report in milliseconds.
+   * @return The result of {@link HidTransport#read(byte[], int)}.
+   */
+  // package-private for the reader loop benchmark
+  int readReport(byte[] data, int timeoutMillis) {
+    int val = transport.read(data, timeoutMillis);
+
+    switch (val) {
+      case -1:
+        // error, the caller backs off instead of spinning on a failing device until it is closed
+        metrics.recordReadError();
+        listeners.fireKeyboardError(this, transport.getLastErrorMessage());
+        break;
+      case 0:
+        // nothing to read
+        break;
+      default:
+        // read success, stamped before anything else happens with the report
+        long readAt = System.nanoTime();
+        record(data, val);
+        long start = System.nanoTime();
+        AnalogKeySnapshot snapshot = parser.parseSnapshot(data, val);
+        if (processor != null && snapshot.hasChanges()) {
+          snapshot = processor.process(snapshot);
+        }
+        long parsed = System.nanoTime();
+        metrics.recordReport(parsed, parsed - start);
+        snapshot.stamp(++reportSequence, readAt);
+        if (snapshot.hasChanges()) {
+          keyStates.update(snapshot);
+          // digital events first, they are the most sensitive to latency
+          if (snapshot.hasActuationChanges()) {
+            listeners.fireKeysActuated(this, snapshot);
+          }
+          listeners.fireKeysChanged(this, snapshot);
+        }
+        break;
+    }
+    return val;
+  }
+
+  /** Closes the underlying device once reading has stopped. */
+  private void finishReading() {
+    transport.close();
+    keyStates.reset();
+    listeners.fireKeyboardClosed(this);
+    reading = false;
+    closed.complete(null);
+  }
+
+  /**
+   * Appends a report to the recording if the device is being recorded. A failing recording is
+   * stopped and reported as an error, while the device keeps being read.
+   */
+  private void record(byte[] data, int len) {
+    ReportRecorder.Track track = recording;
+    if (track != null) {
+      try {
+        track.record(data, len);
+      } catch (UncheckedIOException e) {
+        recording = null;
+        listeners.fireKeyboardError(this, "Recording failed: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Starts or stops recording the raw reports read from this device. Recording can be started and
+   * stopped while the device is open.
+   *
+   * @param recorder The recorder to append the reports to, or {@code null} to stop recording.
+   */
+  public void setRecorder(ReportRecorder recorder) {
+    recording = recorder != null ? recorder.addDevice(transport) : null;
+  }
+
+  /**
+   * Sets the options describing how this device is read. They are applied when the device is
+   * opened.
+   *
+   * @param options The options of this device.
+   */
+  public void setOptions(AnalogKeyboardOptions options) {
+    this.options = Objects.requireNonNull(options, "options");
+  }
+
+  /**
+   * Sets the reader pool this device is read on in {@link ReaderMode#SHARED_POOL} mode. It is used
+   * when the device is opened.
+   *
+   * @param readerPool The reader pool shared by all keyboards.
+   */
+  public void setReaderPool(ReaderPool readerPool) {
+    this.readerPool = readerPool;
+  }
+
+  /**
+   * Determines the length of the device's input reports. The size declared by the plugin is
+   * preferred, otherwise it is read from the device's HID report descriptor. If neither is
+   * available, a size large enough for any report is used, so keys are never truncated.
+   *
+   * @return The length of the device's input reports in bytes.
+   */
+  private int discoverReportSize() {
+    int declared = getDeclaredReportSize();
+    if (declared != SimpleAnalogKeyboard.DISCOVER_REPORT_SIZE) {
+      return declared;
+    }
+    byte[] descriptor = new byte[MAX_DESCRIPTOR_SIZE];
+    int len = transport.getReportDescriptor(descriptor);
+    int discovered = len > 0 ? HidReportDescriptor.getMaxInputReportLength(descriptor, len) : 0;
+    return discovered > 0 ? discovered : FALLBACK_REPORT_SIZE;
+  }
+
+  /**
+   * Gets the length of the device's input reports as declared by the plugin. By default, the length
+   * is read from the device's HID report descriptor.
+   *
+   * @return The length of the input reports in bytes, or {@link
+   *     SimpleAnalogKeyboard#DISCOVER_REPORT_SIZE} to read it from the report descriptor.
+   */
+  protected int getDeclaredReportSize() {
+    return SimpleAnalogKeyboard.DISCOVER_REPORT_SIZE;
+  }
+
   /**
    * Checks whether the current device is closed.
    *
    * @return {@code true} if the device is closed, otherwise {@code false}.
    */
   public boolean isClosed() {
-    return readThread == null || !readThread.isAlive();
+    return !reading;
   }
 
   /**
@@ -85,66 +354,172 @@ public abstract class AnalogKeyboardDevice {
     if (!isClosed()) {
       throw new IllegalStateException("Device is already open.");
     }
+    AnalogKeyboardOptions current = options;
+    ReaderPool pool = readerPool;
+    if (current.getReaderMode() == ReaderMode.SHARED_POOL && pool == null) {
+      throw new IllegalStateException("No reader pool has been set.");
+    }
 
-    device.open();
-    device.setNonBlocking(true);
+    if (!transport.open()) {
+      throw new IllegalStateException("Device could not be opened.");
+    }
+    try {
+      parser = parserFactory.get();
+      parser.setChangeEpsilon(current.getChangeEpsilon());
+      readTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, current.getReadTimeout().toMillis());
+      KeyProfiles keyProfiles = current.getKeyProfiles();
+      processor = keyProfiles != null ? new KeyProcessor(keyProfiles) : null;
+      reportSize = discoverReportSize();
+      readBuffer = new byte[reportSize];
+    } catch (RuntimeException e) {
+      // the device stays closed, so nothing else would ever close the transport
+      parser = null;
+      processor = null;
+      transport.close();
+      throw e;
+    }
+    readDone = false;
+    closed = new CompletableFuture<>();
+    reading = true;
 
-    readThread = new Thread(getReadRunnable());
-    readThread.setDaemon(true);
-    readThread.setName("analog keyboard reader");
-    readThread.start();
+    switch (current.getReaderMode()) {
+      case VIRTUAL_THREAD:
+        readThread =
+            VirtualThreads.newThread(
+                "analog keyboard reader",
+                transport.readsInNativeCode() ? getPollingReadRunnable() : getReadRunnable());
+        readThread.start();
+        break;
+      case SHARED_POOL:
+        // pool threads are shared with other keyboards, so there is no reader thread to wake
+        readThread = null;
+        try {
+          pool.execute(getPooledReadRunnable(pool));
+        } catch (RejectedExecutionException e) {
+          readDone = true;
+          reading = false;
+          transport.close();
+          closed.complete(null);
+          throw new IllegalStateException("Reader pool has been closed.", e);
+        }
+        break;
+      default:
+        readThread = new Thread(getReadRunnable());
+        readThread.setDaemon(true);
+        readThread.setName("analog keyboard reader");
+        readThread.start();
+        break;
+    }
     listeners.fireKeyboardOpened(this);
   }
 
   /**
-   * gracefully closes the underlying device after the next read has finished. Close must only be
-   * called once, use {@link #isClosed()} to check.
+   * gracefully closes the underlying device after the current read has finished. Transports reading
+   * in Java are woken right away, while a read blocked in native code, such as a hid4java read,
+   * returns within {@link AnalogKeyboardOptions#getReadTimeout()}, 5 milliseconds by default. In
+   * {@link ReaderMode#SHARED_POOL} mode, the close is noticed by the next turn of the keyboard,
+   * which runs within a few milliseconds. Close must only be called once, use {@link #isClosed()}
+   * to check.
+   *
+   * @return A {@link CompletableFuture} completed once the device is closed and the closed event
+   *     has been sent.
    */
-  public void close() {
+  public CompletableFuture<Void> close() {
     if (isClosed()) {
       throw new IllegalStateException("Device is not open.");
     }
     readDone = true;
+    LockSupport.unpark(readThread);
+    return closed;
+  }
+
+  /**
+   * Gets a {@link CompletableFuture} completed once the device is closed. This allows waiting for a
+   * device that is being closed by another thread.
+   *
+   * @return A {@link CompletableFuture} completed once the device is closed, which is already
+   *     completed if the device is not open.
+   */
+  public CompletableFuture<Void> onClosed() {
+    return closed;
+  }
+
+  /**
+   * Gets the current pressed amount of a key. This reads the device's lock-free key state table and
+   * can be called from any thread without allocating, keys of a closed device are not pressed.
+   *
+   * @param key The key to get the value for.
+   * @return The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public float getValue(HidKey key) {
+    return keyStates.getValue(key);
+  }
+
+  /**
+   * Copies the current pressed amount of all keys into an array indexed by {@link
+   * HidKey#ordinal()}. This can be called from any thread without allocating.
+   *
+   * @param out The array to copy into, it must hold at least one value per {@link HidKey}.
+   */
+  public void readAll(float[] out) {
+    keyStates.readAll(out);
+  }
+
+  /**
+   * Gets the underlying hid4java device.
+   *
+   * @return The underlying {@link HidDevice}.
+   * @throws UnsupportedOperationException If the device is not read using hid4java.
+   * @deprecated Devices are read through a {@link HidTransport}. Use {@link #getTransport()}, and
+   *     {@link Hid4javaTransport#getDevice()} for devices read using hid4java.
+   */
+  @Deprecated
+  public HidDevice getDevice() {
+    if (transport instanceof Hid4javaTransport hid4javaTransport) {
+      return hid4javaTransport.getDevice();
+    }
+    throw new UnsupportedOperationException(
+        "The device is read from " + transport.getClass().getSimpleName() + ", not hid4java");
   }
 
   /**
-   * Gets the vendor id of the HID device.
+   * Gets the vendor id of the device.
    *
    * @return The vendor id of this device.
    */
   public int getVendorId() {
-    return device.getVendorId();
+    return transport.getVendorId();
   }
 
   /**
-   * Gets the product id of the HID device.
+   * Gets the product id of the device.
    *
    * @return The product id of this device.
    */
   public int getProductId() {
-    return device.getProductId();
+    return transport.getProductId();
   }
 
   /**
-   * Gets the usage page of the HID device.
+   * Gets the usage page of the device.
    *
    * @return The usage page of this device.
    */
   public int getUsagePage() {
-    return device.getUsagePage();
+    return transport.getUsagePage();
   }
 
   /**
-   * Gets the serial number of the HID device.
+   * Gets the serial number of the device.
    *
    * @return The serial number of this device.
    */
   public String getSerialNumber() {
-    return device.getSerialNumber();
+    return transport.getSerialNumber();
   }
 
   /**
-   * Checks if the keyboard's HID device matches a keyboard supported by this plugin.
+   * Checks if the keyboard's device matches a keyboard supported by this plugin.
    *
    * @return {@code true} if the device is a supported keyboard, {@code false} otherwise.
    */
@@ -154,11 +529,11 @@ public abstract class AnalogKeyboardDevice {
   public boolean equals(Object o) {
     if (o == null || getClass() != o.getClass()) return false;
     AnalogKeyboardDevice that = (AnalogKeyboardDevice) o;
-    return Objects.equals(device, that.device);
+    return Objects.equals(transport, that.transport);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(device);
+    return Objects.hashCode(transport);
   }
 }
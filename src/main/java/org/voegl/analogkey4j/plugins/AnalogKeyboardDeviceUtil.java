@@ -1,32 +1,86 @@
 package org.voegl.analogkey4j.plugins;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.ServiceLoader;
 import org.hid4java.HidDevice;
 import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
-import org.voegl.analogkey4j.plugins.wooting.WootingDevice;
+import org.voegl.analogkey4j.transport.Hid4javaTransport;
+import org.voegl.analogkey4j.transport.HidTransport;
 
 /**
  * A utility class for managing available analog keyboard plugins. This class is responsible for
  * detecting compatible devices and selecting the appropriate plugin to manage them.
+ *
+ * <p>Plugins are discovered with {@link ServiceLoader}, see {@link AnalogKeyboardPlugin}. The
+ * keyboards supported by all plugins are indexed by their vendor id, product id and usage page
+ * once, so finding the plugin of a device is a single hash lookup and no plugin objects are created
+ * for unsupported devices.
  */
 public class AnalogKeyboardDeviceUtil {
 
+  /* the plugin responsible for every supported keyboard, by hardware key */
+  private static final Map<Long, Registration> PLUGINS = loadPlugins();
+
+  /** A supported keyboard together with the plugin responsible for it. */
+  private static final class Registration {
+    final SimpleAnalogKeyboard keyboard;
+    final AnalogKeyboardPlugin plugin;
+
+    Registration(SimpleAnalogKeyboard keyboard, AnalogKeyboardPlugin plugin) {
+      this.keyboard = keyboard;
+      this.plugin = plugin;
+    }
+  }
+
   /** Class must not be instantiated. */
   private AnalogKeyboardDeviceUtil() {
     throw new UnsupportedOperationException();
   }
 
   /**
-   * Retrieves a set of available analog keyboard plugins for the given HID device.
+   * Discovers all plugins and indexes the keyboards they support. If several plugins declare the
+   * same keyboard, the plugin found first is used.
    *
-   * @param device The HID device to check for available analog keyboard plugins.
-   * @param listeners A list of listeners that will be notified of events related to the devices.
-   * @return A set of analog keyboard plugins that correspond to the given HID device.
+   * @return The index of all supported keyboards.
    */
-  private static Set<AnalogKeyboardDevice> getDevices(
-      HidDevice device, AnalogKeyboardListenerList listeners) {
-    return Set.of(new WootingDevice(device, listeners));
+  private static Map<Long, Registration> loadPlugins() {
+    Map<Long, Registration> plugins = new HashMap<>();
+    for (AnalogKeyboardPlugin plugin : ServiceLoader.load(AnalogKeyboardPlugin.class)) {
+      for (SimpleAnalogKeyboard keyboard : plugin.getKeyboards()) {
+        plugins.putIfAbsent(
+            hardwareKey(keyboard.getVendorId(), keyboard.getProductId(), keyboard.getUsagePage()),
+            new Registration(keyboard, plugin));
+      }
+    }
+    return Map.copyOf(plugins);
+  }
+
+  /**
+   * Packs the hardware information identifying a keyboard model into a single key.
+   *
+   * @param vendorId The vendor id of the device.
+   * @param productId The product id of the device.
+   * @param usagePage The usage page of the device.
+   * @return The key of the keyboard model.
+   */
+  private static long hardwareKey(int vendorId, int productId, int usagePage) {
+    return ((long) (vendorId & 0xFFFF) << 48)
+        | ((long) (productId & 0xFFFF) << 32)
+        | (usagePage & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Checks whether any plugin supports a device, without creating a plugin.
+   *
+   * @param vendorId The vendor id of the device.
+   * @param productId The product id of the device.
+   * @param usagePage The usage page of the device.
+   * @return {@code true} if a plugin supports the device, {@code false} otherwise.
+   */
+  public static boolean isSupported(int vendorId, int productId, int usagePage) {
+    return PLUGINS.containsKey(hardwareKey(vendorId, productId, usagePage));
   }
 
   /**
@@ -40,8 +94,32 @@ public class AnalogKeyboardDeviceUtil {
    */
   public static Optional<AnalogKeyboardDevice> getAvailablePlugin(
       HidDevice device, AnalogKeyboardListenerList listeners) {
-    return getDevices(device, listeners).stream()
-        .filter(AnalogKeyboardDevice::isResponsible)
-        .findFirst();
+    if (!isSupported(device.getVendorId(), device.getProductId(), device.getUsagePage())) {
+      return Optional.empty();
+    }
+    return getAvailablePlugin(new Hid4javaTransport(device), listeners);
+  }
+
+  /**
+   * Attempts to find the first (and only) available analog keyboard plugin for the given transport.
+   * The method checks if any plugin is responsible for handling the device.
+   *
+   * @param transport The transport to check for available analog keyboard plugins.
+   * @param listeners A list of listeners to notify about events related to the device.
+   * @return An {@link Optional} containing the first responsible analog keyboard device, or an
+   *     empty {@link Optional} if no compatible plugin is found.
+   */
+  public static Optional<AnalogKeyboardDevice> getAvailablePlugin(
+      HidTransport transport, AnalogKeyboardListenerList listeners) {
+    Registration registration =
+        PLUGINS.get(
+            hardwareKey(
+                transport.getVendorId(), transport.getProductId(), transport.getUsagePage()));
+    if (registration == null) {
+      return Optional.empty();
+    }
+    return Optional.of(
+            registration.plugin.createDevice(registration.keyboard, transport, listeners))
+        .filter(AnalogKeyboardDevice::isResponsible);
   }
 }
@@ -0,0 +1,90 @@
+package org.voegl.analogkey4j.plugins;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.voegl.analogkey4j.processing.KeyProfiles;
+
+/**
+ * Options describing how analog keyboards are read, which apply to every keyboard of an {@link
+ * org.voegl.analogkey4j.AnalogKeyboardManager}. Instances are created using {@link #builder()}.
+ */
+@Getter
+@ToString
+public class AnalogKeyboardOptions {
+
+  /** The options used if a manager is created without specifying any. */
+  public static final AnalogKeyboardOptions DEFAULT = builder().build();
+
+  /**
+   * The minimum distance a key's value must move from its last reported value to be reported again,
+   * between {@code 0.0} and {@code 1.0} (exclusive). Releases are always reported.
+   */
+  private final float changeEpsilon;
+
+  /**
+   * The profiles applied to the keys before they are reported, or {@code null} to report the raw
+   * travel of the keys.
+   */
+  private final KeyProfiles keyProfiles;
+
+  /** The threads keyboards are read on. */
+  private final ReaderMode readerMode;
+
+  /** The number of reader threads shared by all keyboards in {@link ReaderMode#SHARED_POOL}. */
+  private final int readerPoolSize;
+
+  /** The maximum time stopping a manager waits for its keyboards to close. */
+  private final Duration closeTimeout;
+
+  /**
+   * The maximum time a single read of a keyboard blocks in {@link ReaderMode#PLATFORM_THREAD} and
+   * {@link ReaderMode#VIRTUAL_THREAD} mode. A blocked read cannot be interrupted, so this is how
+   * long closing a keyboard may take, while an idle keyboard wakes up once per timeout. The default
+   * of a few milliseconds keeps closes prompt, longer timeouts mean fewer idle wakeups and slower
+   * closes.
+   */
+  private final Duration readTimeout;
+
+  /**
+   * Constructs new options, unset options keep their default.
+   *
+   * @param changeEpsilon The change epsilon, {@code 0.0} by default to report every change.
+   * @param keyProfiles The key profiles, {@code null} by default.
+   * @param readerMode The reader mode, {@link ReaderMode#PLATFORM_THREAD} by default.
+   * @param readerPoolSize The reader pool size, {@code 2} by default.
+   * @param closeTimeout The close timeout, 5 seconds by default.
+   * @param readTimeout The read timeout of at least a millisecond, 5 milliseconds by default.
+   */
+  @Builder
+  private AnalogKeyboardOptions(
+      float changeEpsilon,
+      KeyProfiles keyProfiles,
+      ReaderMode readerMode,
+      int readerPoolSize,
+      Duration closeTimeout,
+      Duration readTimeout) {
+    if (!(changeEpsilon >= 0.0f && changeEpsilon < 1.0f)) {
+      throw new IllegalArgumentException("Invalid change epsilon " + changeEpsilon);
+    }
+    this.changeEpsilon = changeEpsilon;
+    if (readerMode == ReaderMode.VIRTUAL_THREAD && !VirtualThreads.isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+    if (readerPoolSize < 0) {
+      throw new IllegalArgumentException("Invalid reader pool size " + readerPoolSize);
+    }
+    if (closeTimeout != null && closeTimeout.isNegative()) {
+      throw new IllegalArgumentException("Invalid close timeout " + closeTimeout);
+    }
+    if (readTimeout != null && readTimeout.toMillis() < 1) {
+      throw new IllegalArgumentException("Invalid read timeout " + readTimeout);
+    }
+    this.keyProfiles = keyProfiles;
+    this.readerMode = readerMode != null ? readerMode : ReaderMode.PLATFORM_THREAD;
+    this.readerPoolSize = readerPoolSize > 0 ? readerPoolSize : 2;
+    this.closeTimeout = closeTimeout != null ? closeTimeout : Duration.ofSeconds(5);
+    this.readTimeout = readTimeout != null ? readTimeout : Duration.ofMillis(5);
+  }
+}
@@ -0,0 +1,50 @@
+package org.voegl.analogkey4j.plugins;
+
+import java.util.Set;
+import java.util.function.Supplier;
+import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
+import org.voegl.analogkey4j.parser.HidParser;
+import org.voegl.analogkey4j.transport.HidTransport;
+
+/**
+ * A service provider adding support for analog keyboards. Plugins are discovered with {@link
+ * java.util.ServiceLoader}, so support for further keyboards can be added by listing an
+ * implementation in {@code META-INF/services/org.voegl.analogkey4j.plugins.AnalogKeyboardPlugin}.
+ * Implementations need a public no-argument constructor.
+ *
+ * <p>The keyboards of all plugins are indexed once when the first device is looked up. If several
+ * plugins declare the same keyboard, the plugin found first is used.
+ */
+public interface AnalogKeyboardPlugin {
+
+  /**
+   * Gets the keyboards supported by this plugin. Each keyboard declares the length of its input
+   * reports, or {@link SimpleAnalogKeyboard#DISCOVER_REPORT_SIZE} to read it from the device's HID
+   * report descriptor.
+   *
+   * @return The keyboards supported by this plugin.
+   */
+  Set<SimpleAnalogKeyboard> getKeyboards();
+
+  /**
+   * Gets the factory creating the parsers of this plugin's keyboards. A new parser is created every
+   * time a keyboard is opened.
+   *
+   * @return The factory creating parsers.
+   */
+  Supplier<HidParser> getParserFactory();
+
+  /**
+   * Creates the device reading from a supported keyboard. By default, a generic device using the
+   * parser factory and the declared report size of the keyboard is created.
+   *
+   * @param keyboard The supported keyboard matching the transport.
+   * @param transport The transport to read from.
+   * @param listeners The list of listeners that will be notified of keyboard events.
+   * @return The device reading from the keyboard.
+   */
+  default AnalogKeyboardDevice createDevice(
+      SimpleAnalogKeyboard keyboard, HidTransport transport, AnalogKeyboardListenerList listeners) {
+    return new PluginDevice(keyboard, transport, getParserFactory(), listeners);
+  }
+}
@@ -0,0 +1,44 @@
+package org.voegl.analogkey4j.plugins;
+
+import java.util.function.Supplier;
+import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
+import org.voegl.analogkey4j.parser.HidParser;
+import org.voegl.analogkey4j.transport.HidTransport;
+
+/**
+ * A generic device created for plugins that do not need a device of their own. It reads a single
+ * keyboard model declared by its plugin.
+ */
+final class PluginDevice extends AnalogKeyboardDevice {
+
+  private final SimpleAnalogKeyboard keyboard;
+
+  /**
+   * Constructs a new generic device.
+   *
+   * @param keyboard The keyboard model read by this device.
+   * @param transport The transport the device is read from.
+   * @param parserFactory The factory creating the parsers of the plugin.
+   * @param listeners Event listeners listening for device changes.
+   */
+  PluginDevice(
+      SimpleAnalogKeyboard keyboard,
+      HidTransport transport,
+      Supplier<HidParser> parserFactory,
+      AnalogKeyboardListenerList listeners) {
+    super(transport, parserFactory, listeners);
+    this.keyboard = keyboard;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected int getDeclaredReportSize() {
+    return keyboard.getReportSize();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isResponsible() {
+    return keyboard.matchesTransport(transport);
+  }
+}
@@ -0,0 +1,28 @@
+package org.voegl.analogkey4j.plugins;
+
+/** The threads analog keyboards are read on. */
+public enum ReaderMode {
+  /** Every keyboard is read by its own platform thread, which gives the lowest latency. */
+  PLATFORM_THREAD,
+
+  /**
+   * Every keyboard is read by its own virtual thread, so idle keyboards do not hold an OS thread
+   * while waiting for reports. This requires Java 21 or newer at runtime. Transports reading in
+   * Java, such as synthetic or replayed devices, block as usual. A read blocked in native code,
+   * such as a hid4java read in {@code hid_read_timeout}, would pin the carrier thread for the whole
+   * read, so those transports are polled without blocking instead, see {@link
+   * org.voegl.analogkey4j.transport.HidTransport#readsInNativeCode()}. Between empty polls the
+   * virtual thread parks for a growing delay of up to 8 milliseconds, which is added to the latency
+   * of the first report after a pause, like in {@link #SHARED_POOL} mode.
+   */
+  VIRTUAL_THREAD,
+
+  /**
+   * All keyboards are read by a small pool of platform threads, which take turns polling the
+   * keyboards without blocking. Idle keyboards are polled with a growing delay of up to 8
+   * milliseconds, which is added to the latency of the first report after a pause. Thread count and
+   * memory no longer grow with the number of keyboards, at the cost of latency growing with the
+   * number of keyboards per thread.
+   */
+  SHARED_POOL
+}
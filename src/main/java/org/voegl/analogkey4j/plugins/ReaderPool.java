@@ -0,0 +1,63 @@
+package org.voegl.analogkey4j.plugins;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of platform threads shared by all keyboards read in {@link ReaderMode#SHARED_POOL}
+ * mode. Keyboards take turns, each turn reads the reports that are ready and then yields the thread
+ * to the next keyboard. A keyboard without reports schedules its next turn with a growing delay, so
+ * idle keyboards do not keep the pool threads busy.
+ */
+public class ReaderPool implements Closeable {
+
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Constructs a new reader pool. Threads are started as keyboards are opened.
+   *
+   * @param size The number of reader threads.
+   */
+  public ReaderPool(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Invalid reader pool size " + size);
+    }
+    AtomicInteger count = new AtomicInteger();
+    executor =
+        new ScheduledThreadPoolExecutor(
+            size,
+            task -> {
+              Thread thread = new Thread(task, "analog keyboard reader " + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Schedules the next turn of a keyboard.
+   *
+   * @param turn The turn to run.
+   */
+  void execute(Runnable turn) {
+    executor.execute(turn);
+  }
+
+  /**
+   * Schedules the next turn of a keyboard after a delay.
+   *
+   * @param turn The turn to run.
+   * @param delayNanos The delay before the turn runs in nanoseconds.
+   */
+  void schedule(Runnable turn, long delayNanos) {
+    executor.schedule(turn, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Stops the reader threads, keyboards must be closed before. */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+}
@@ -1,7 +1,9 @@
 package org.voegl.analogkey4j.plugins;
 
+import lombok.Getter;
 import lombok.ToString;
 import org.hid4java.HidDevice;
+import org.voegl.analogkey4j.transport.HidTransport;
 
 /**
  * Represents a simple analog keyboard. This class is mostly used to specify a specific keyboard by
@@ -10,13 +12,23 @@ import org.hid4java.HidDevice;
 @ToString
 public class SimpleAnalogKeyboard {
 
-  private final String name;
-  private final int vendorId;
-  private final int productId;
-  private final int usagePage;
+  /** The report size of keyboards whose report size is read from their HID report descriptor. */
+  public static final int DISCOVER_REPORT_SIZE = 0;
+
+  @Getter private final String name;
+  @Getter private final int vendorId;
+  @Getter private final int productId;
+  @Getter private final int usagePage;
 
   /**
-   * Constructs a new simple analog keyboard from the given hardware information.
+   * The length of the device's input reports in bytes, or {@link #DISCOVER_REPORT_SIZE} if it is
+   * read from the device's HID report descriptor.
+   */
+  @Getter private final int reportSize;
+
+  /**
+   * Constructs a new simple analog keyboard from the given hardware information. The length of its
+   * input reports is read from the device's HID report descriptor.
    *
    * @param name A user specified name.
    * @param vendorId The vendor id (VID) for the device.
@@ -24,10 +36,29 @@ public class SimpleAnalogKeyboard {
    * @param usagePage The HID usage page for the device.
    */
   public SimpleAnalogKeyboard(String name, int vendorId, int productId, int usagePage) {
+    this(name, vendorId, productId, usagePage, DISCOVER_REPORT_SIZE);
+  }
+
+  /**
+   * Constructs a new simple analog keyboard from the given hardware information.
+   *
+   * @param name A user specified name.
+   * @param vendorId The vendor id (VID) for the device.
+   * @param productId The product id (PID) for the device.
+   * @param usagePage The HID usage page for the device.
+   * @param reportSize The length of the device's input reports in bytes, or {@link
+   *     #DISCOVER_REPORT_SIZE} to read it from the device's HID report descriptor.
+   */
+  public SimpleAnalogKeyboard(
+      String name, int vendorId, int productId, int usagePage, int reportSize) {
+    if (reportSize < 0) {
+      throw new IllegalArgumentException("Invalid report size " + reportSize);
+    }
     this.name = name;
     this.vendorId = vendorId;
     this.productId = productId;
     this.usagePage = usagePage;
+    this.reportSize = reportSize;
   }
 
   /**
@@ -42,4 +73,17 @@ public class SimpleAnalogKeyboard {
         && vendorId == o.getVendorId()
         && usagePage == o.getUsagePage();
   }
+
+  /**
+   * Checks whether this device is the same hardware device as the given {@link HidTransport}.
+   *
+   * @param o The {@link HidTransport} to match against.
+   * @return {@code true} if the current instance and the parameter refer to the same hardware
+   *     device, {@code false} otherwise.
+   */
+  public boolean matchesTransport(HidTransport o) {
+    return productId == o.getProductId()
+        && vendorId == o.getVendorId()
+        && usagePage == o.getUsagePage();
+  }
 }
@@ -0,0 +1,83 @@
+package org.voegl.analogkey4j.plugins;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Creates virtual threads if the runtime supports them. The library is built for Java 17, so the
+ * Java 21 API is looked up once when this class is loaded.
+ */
+final class VirtualThreads {
+
+  /* Thread.ofVirtual(), null if virtual threads are not supported */
+  private static final MethodHandle OF_VIRTUAL;
+  /* Thread.Builder.name(String) */
+  private static final MethodHandle NAME;
+  /* Thread.Builder.unstarted(Runnable) */
+  private static final MethodHandle UNSTARTED;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle unstarted = null;
+    try {
+      if (Runtime.version().feature() < 21) {
+        // virtual threads are a preview feature before Java 21
+        throw new ClassNotFoundException("java.lang.Thread$Builder");
+      }
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      ofVirtual =
+          lookup.findStatic(
+              Thread.class,
+              "ofVirtual",
+              MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+      name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class));
+      unstarted =
+          lookup.findVirtual(
+              builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+    } catch (ReflectiveOperationException e) {
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    UNSTARTED = unstarted;
+  }
+
+  private VirtualThreads() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Checks whether the runtime supports virtual threads.
+   *
+   * @return {@code true} if virtual threads are supported, {@code false} otherwise.
+   */
+  static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Creates an unstarted virtual thread.
+   *
+   * @param name The name of the thread.
+   * @param task The task the thread runs.
+   * @return The unstarted virtual thread.
+   * @throws UnsupportedOperationException If the runtime does not support virtual threads.
+   */
+  static Thread newThread(String name, Runnable task) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+    try {
+      Object builder = OF_VIRTUAL.invoke();
+      builder = NAME.invoke(builder, name);
+      return (Thread) UNSTARTED.invoke(builder, task);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Virtual thread could not be created", e);
+    }
+  }
+}
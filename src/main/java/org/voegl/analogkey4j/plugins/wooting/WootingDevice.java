@@ -1,12 +1,11 @@
 package org.voegl.analogkey4j.plugins.wooting;
 
-import java.util.Set;
 import org.hid4java.HidDevice;
 import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
-import org.voegl.analogkey4j.key.HidKeyMap;
-import org.voegl.analogkey4j.parser.HidParser;
 import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
 import org.voegl.analogkey4j.plugins.SimpleAnalogKeyboard;
+import org.voegl.analogkey4j.transport.Hid4javaTransport;
+import org.voegl.analogkey4j.transport.HidTransport;
 
 /**
  * Represents a Wooting analog keyboard device. This class extends {@link AnalogKeyboardDevice} and
@@ -14,29 +13,59 @@ import org.voegl.analogkey4j.plugins.SimpleAnalogKeyboard;
  */
 public class WootingDevice extends AnalogKeyboardDevice {
 
-  private static final Set<SimpleAnalogKeyboard> KEYBOARDS =
-      Set.of(
-          new SimpleAnalogKeyboard("Wooting 60HE", 0x31e3, 0x1312, 0xffffff54),
-          new SimpleAnalogKeyboard("Wooting 80HE", 0x31e3, 0x1402, 0xffffff54),
-          new SimpleAnalogKeyboard("Wooting Two HE (ARM)", 0x31e3, 0x1232, 0xffffff54),
-          new SimpleAnalogKeyboard("Wooting Two Legacy", 0x03eb, 0xff02, 0xffffff54),
-          new SimpleAnalogKeyboard("Wooting One Legacy", 0x03eb, 0xff01, 0xffffff54));
-  private static final HidParser PARSER = new HidParser(HidKeyMap.getInstance());
+  /* the Wooting keyboard read by this device, null if the transport is not a Wooting keyboard */
+  private final SimpleAnalogKeyboard keyboard;
 
   /**
    * Constructs a new {@link WootingDevice} instance. This constructor initializes the device and
-   * its associated parser, as well as the listeners for event notifications.
+   * the factory for its parsers, as well as the listeners for event notifications.
    *
    * @param device The HID device representing the Wooting keyboard.
    * @param listeners The list of listeners that will be notified of keyboard events.
    */
   public WootingDevice(HidDevice device, AnalogKeyboardListenerList listeners) {
-    super(device, PARSER, listeners);
+    this(new Hid4javaTransport(device), listeners);
+  }
+
+  /**
+   * Constructs a new {@link WootingDevice} instance reading from the given transport.
+   *
+   * @param transport The transport representing the Wooting keyboard.
+   * @param listeners The list of listeners that will be notified of keyboard events.
+   */
+  public WootingDevice(HidTransport transport, AnalogKeyboardListenerList listeners) {
+    this(
+        WootingPlugin.KEYBOARDS.stream()
+            .filter(k -> k.matchesTransport(transport))
+            .findFirst()
+            .orElse(null),
+        transport,
+        listeners);
+  }
+
+  /**
+   * Constructs a new {@link WootingDevice} instance for a keyboard that is already known to match
+   * the transport.
+   *
+   * @param keyboard The Wooting keyboard matching the transport.
+   * @param transport The transport representing the Wooting keyboard.
+   * @param listeners The list of listeners that will be notified of keyboard events.
+   */
+  WootingDevice(
+      SimpleAnalogKeyboard keyboard, HidTransport transport, AnalogKeyboardListenerList listeners) {
+    super(transport, WootingPlugin.PARSER_FACTORY, listeners);
+    this.keyboard = keyboard;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected int getDeclaredReportSize() {
+    return keyboard != null ? keyboard.getReportSize() : SimpleAnalogKeyboard.DISCOVER_REPORT_SIZE;
   }
 
   /** {@inheritDoc} */
   @Override
   public boolean isResponsible() {
-    return KEYBOARDS.stream().anyMatch(k -> k.matchesHidDevice(device));
+    return keyboard != null;
   }
 }
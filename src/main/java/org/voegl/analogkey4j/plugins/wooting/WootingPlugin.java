@@ -0,0 +1,43 @@
+package org.voegl.analogkey4j.plugins.wooting;
+
+import java.util.Set;
+import java.util.function.Supplier;
+import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
+import org.voegl.analogkey4j.key.HidKeyMap;
+import org.voegl.analogkey4j.parser.HidParser;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardPlugin;
+import org.voegl.analogkey4j.plugins.SimpleAnalogKeyboard;
+import org.voegl.analogkey4j.transport.HidTransport;
+
+/** The plugin adding support for Wooting HE keyboards. */
+public class WootingPlugin implements AnalogKeyboardPlugin {
+
+  static final Set<SimpleAnalogKeyboard> KEYBOARDS =
+      Set.of(
+          new SimpleAnalogKeyboard("Wooting 60HE", 0x31e3, 0x1312, 0xffffff54),
+          new SimpleAnalogKeyboard("Wooting 80HE", 0x31e3, 0x1402, 0xffffff54),
+          new SimpleAnalogKeyboard("Wooting Two HE (ARM)", 0x31e3, 0x1232, 0xffffff54),
+          new SimpleAnalogKeyboard("Wooting Two Legacy", 0x03eb, 0xff02, 0xffffff54),
+          new SimpleAnalogKeyboard("Wooting One Legacy", 0x03eb, 0xff01, 0xffffff54));
+  static final Supplier<HidParser> PARSER_FACTORY = () -> new HidParser(HidKeyMap.getInstance());
+
+  /** {@inheritDoc} */
+  @Override
+  public Set<SimpleAnalogKeyboard> getKeyboards() {
+    return KEYBOARDS;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Supplier<HidParser> getParserFactory() {
+    return PARSER_FACTORY;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public AnalogKeyboardDevice createDevice(
+      SimpleAnalogKeyboard keyboard, HidTransport transport, AnalogKeyboardListenerList listeners) {
+    return new WootingDevice(keyboard, transport, listeners);
+  }
+}
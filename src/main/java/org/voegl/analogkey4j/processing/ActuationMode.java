@@ -0,0 +1,23 @@
+package org.voegl.analogkey4j.processing;
+
+/** How a key is actuated and released based on its value. */
+public enum ActuationMode {
+  /**
+   * The key is actuated once its value reaches the actuation point, and released once it falls more
+   * than the hysteresis below it.
+   */
+  FIXED,
+
+  /**
+   * Above the actuation point, the key is released as soon as it moves up by the release
+   * sensitivity and actuated again as soon as it moves down by the press sensitivity, regardless of
+   * the actuation point. Below the actuation point, the key behaves like {@link #FIXED}.
+   */
+  RAPID_TRIGGER,
+
+  /**
+   * Like {@link #RAPID_TRIGGER}, but once the key has been actuated, rapid trigger stays active
+   * until the key is fully released, so it can be actuated again anywhere along its travel.
+   */
+  CONTINUOUS_RAPID_TRIGGER
+}
@@ -0,0 +1,117 @@
+package org.voegl.analogkey4j.processing;
+
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+
+/**
+ * Applies {@link KeyProfiles} to the key states parsed from a keyboard's reports, before they reach
+ * the listeners. Every changed key costs two table lookups, so processing does not allocate and
+ * does no float math beyond recovering the raw travel.
+ *
+ * <p>Keys using rapid trigger are run through a small state machine tracking the turning point of
+ * every key, which works on primitive arrays as well, so actuation is decided on the reader thread
+ * right after parsing.
+ *
+ * <p>A processor keeps the actuation state of every key, so every device must use its own instance.
+ * Processors are not thread-safe and are meant to be used by the device's reader thread only.
+ */
+public class KeyProcessor {
+
+  private final KeyProfiles profiles;
+  private final AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+  /* the highest value since an actuation or the lowest value since a release, by key ordinal */
+  private final float[] turningPoints = new float[AnalogKeySnapshot.KEY_COUNT];
+  /* the keys rapid trigger is active for, by key ordinal */
+  private final long[] rapid = new long[(AnalogKeySnapshot.KEY_COUNT + 63) >>> 6];
+
+  /**
+   * Constructs a new processor applying the given profiles.
+   *
+   * @param profiles The compiled key profiles.
+   */
+  public KeyProcessor(KeyProfiles profiles) {
+    this.profiles = profiles;
+  }
+
+  /**
+   * Applies the key profiles to the changed keys of a parsed snapshot. Only keys whose processed
+   * value or actuation state moved are marked changed in the result, so travel within a deadzone
+   * does not produce any changes.
+   *
+   * @param parsed The snapshot returned by the parser, holding raw travels.
+   * @return This processor's {@link AnalogKeySnapshot}, which is overwritten by the next call.
+   */
+  public AnalogKeySnapshot process(AnalogKeySnapshot parsed) {
+    snapshot.clearChanges();
+    for (int i = parsed.nextChanged(0); i >= 0; i = parsed.nextChanged(i + 1)) {
+      // values are parsed from 8-bit travels, so this recovers the travel exactly
+      int raw = Math.max(0, Math.min(255, (int) (parsed.getValue(i) * 255.0f + 0.5f)));
+      float value = profiles.values[i][raw];
+      boolean actuated = snapshot.isActuated(i);
+      boolean fixed =
+          actuated
+              ? (profiles.releasing[i][raw >>> 6] & (1L << raw)) == 0
+              : (profiles.actuating[i][raw >>> 6] & (1L << raw)) != 0;
+      KeyProfile profile = profiles.byKey[i];
+      boolean next =
+          profile.getActuationMode() == ActuationMode.FIXED
+              ? fixed
+              : rapidTrigger(i, profile, value, actuated, fixed);
+      if (value != snapshot.getValue(i) || next != actuated) {
+        snapshot.set(i, value);
+        snapshot.setActuated(i, next);
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Decides whether a key using rapid trigger is actuated. Rapid trigger becomes active once the
+   * key is actuated at its actuation point, and stays active until the key is released at its
+   * release point or, with {@link ActuationMode#CONTINUOUS_RAPID_TRIGGER}, until it is fully
+   * released.
+   *
+   * @param ordinal The ordinal of the key.
+   * @param profile The profile of the key.
+   * @param value The new value of the key.
+   * @param actuated Whether the key is currently actuated.
+   * @param fixed Whether the key would be actuated with {@link ActuationMode#FIXED}.
+   * @return {@code true} if the key is actuated, {@code false} otherwise.
+   */
+  private boolean rapidTrigger(
+      int ordinal, KeyProfile profile, float value, boolean actuated, boolean fixed) {
+    int word = ordinal >>> 6;
+    long bit = 1L << ordinal;
+    boolean active = (rapid[word] & bit) != 0;
+    boolean released =
+        value == 0.0f
+            || profile.getActuationMode() == ActuationMode.RAPID_TRIGGER
+                && value < profile.getActuationPoint() - profile.getHysteresis();
+    if (active && released) {
+      rapid[word] &= ~bit;
+      active = false;
+    }
+    if (!active) {
+      if (fixed) {
+        rapid[word] |= bit;
+      }
+      turningPoints[ordinal] = value;
+      return fixed;
+    }
+
+    float turningPoint = turningPoints[ordinal];
+    if (actuated) {
+      if (value <= turningPoint - profile.getReleaseSensitivity()) {
+        turningPoints[ordinal] = value;
+        return false;
+      }
+      turningPoints[ordinal] = Math.max(turningPoint, value);
+      return true;
+    }
+    if (value >= turningPoint + profile.getPressSensitivity()) {
+      turningPoints[ordinal] = value;
+      return true;
+    }
+    turningPoints[ordinal] = Math.min(turningPoint, value);
+    return false;
+  }
+}
@@ -0,0 +1,120 @@
+package org.voegl.analogkey4j.processing;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Describes how the raw travel of a key is turned into the value and actuation state reported to
+ * listeners. Instances are created using {@link #builder()}.
+ *
+ * <p>Travel within the inner deadzone is reported as {@code 0.0} and travel within the outer
+ * deadzone as {@code 1.0}. The travel between is stretched to the full range and mapped by the
+ * curve. A key is actuated once its value reaches the actuation point, and released once it falls
+ * more than the hysteresis below it, so noise around the actuation point does not chatter. The
+ * {@link ActuationMode} additionally allows rapid trigger, which actuates and releases keys on
+ * changes of their direction.
+ */
+@Getter
+@ToString
+public class KeyProfile {
+
+  /** The profile reporting the raw travel, actuating keys at half of it. */
+  public static final KeyProfile DEFAULT = builder().build();
+
+  /** The travel at the bottom which is reported as {@code 0.0}. */
+  private final float innerDeadzone;
+
+  /** The travel at the top which is reported as {@code 1.0}. */
+  private final float outerDeadzone;
+
+  /** The curve mapping the travel between the deadzones. */
+  private final ResponseCurve curve;
+
+  /** The value at which the key is actuated. */
+  private final float actuationPoint;
+
+  /** The distance the value must fall below the actuation point to release the key. */
+  private final float hysteresis;
+
+  /** How the key is actuated and released. */
+  private final ActuationMode actuationMode;
+
+  /** The distance a released key must move down to be actuated again with rapid trigger. */
+  private final float pressSensitivity;
+
+  /** The distance an actuated key must move up to be released with rapid trigger. */
+  private final float releaseSensitivity;
+
+  /**
+   * Constructs a new key profile, unset properties keep their default.
+   *
+   * @param innerDeadzone The inner deadzone, {@code 0.0} by default.
+   * @param outerDeadzone The outer deadzone, {@code 0.0} by default.
+   * @param curve The response curve, {@link ResponseCurve#linear()} by default.
+   * @param actuationPoint The actuation point above {@code 0.0}, {@code 0.5} by default.
+   * @param hysteresis The hysteresis, at most the actuation point, {@code 0.0} by default.
+   * @param actuationMode The actuation mode, {@link ActuationMode#FIXED} by default.
+   * @param pressSensitivity The press sensitivity above {@code 0.0}, {@code 0.1} by default.
+   * @param releaseSensitivity The release sensitivity above {@code 0.0}, the press sensitivity by
+   *     default.
+   */
+  @Builder
+  private KeyProfile(
+      float innerDeadzone,
+      float outerDeadzone,
+      ResponseCurve curve,
+      Float actuationPoint,
+      float hysteresis,
+      ActuationMode actuationMode,
+      Float pressSensitivity,
+      Float releaseSensitivity) {
+    if (!(innerDeadzone >= 0.0f && outerDeadzone >= 0.0f && innerDeadzone + outerDeadzone < 1.0f)) {
+      throw new IllegalArgumentException(
+          "Invalid deadzones " + innerDeadzone + " and " + outerDeadzone);
+    }
+    float actuation = actuationPoint != null ? actuationPoint : 0.5f;
+    if (!(actuation > 0.0f && actuation <= 1.0f)) {
+      throw new IllegalArgumentException("Invalid actuation point " + actuation);
+    }
+    if (!(hysteresis >= 0.0f && hysteresis <= actuation)) {
+      throw new IllegalArgumentException("Invalid hysteresis " + hysteresis);
+    }
+    this.innerDeadzone = innerDeadzone;
+    this.outerDeadzone = outerDeadzone;
+    this.curve = curve != null ? curve : ResponseCurve.linear();
+    this.actuationPoint = actuation;
+    this.hysteresis = hysteresis;
+    float press = pressSensitivity != null ? pressSensitivity : 0.1f;
+    float release = releaseSensitivity != null ? releaseSensitivity : press;
+    if (!(press > 0.0f && press <= 1.0f && release > 0.0f && release <= 1.0f)) {
+      throw new IllegalArgumentException("Invalid sensitivities " + press + " and " + release);
+    }
+    this.actuationMode = actuationMode != null ? actuationMode : ActuationMode.FIXED;
+    this.pressSensitivity = press;
+    this.releaseSensitivity = release;
+  }
+
+  /**
+   * Computes the value of every possible 8-bit raw travel.
+   *
+   * @return A table holding the value of the raw travel {@code i} at index {@code i}.
+   */
+  float[] compileValues() {
+    float[] values = new float[256];
+    float range = 1.0f - innerDeadzone - outerDeadzone;
+    for (int raw = 0; raw < values.length; raw++) {
+      float travel = raw / 255.0f;
+      float value;
+      if (raw == 0 || travel <= innerDeadzone) {
+        value = 0.0f;
+      } else if (travel >= 1.0f - outerDeadzone) {
+        value = 1.0f;
+      } else {
+        value = curve.apply((travel - innerDeadzone) / range);
+      }
+      values[raw] = Float.isNaN(value) ? 0.0f : Math.max(0.0f, Math.min(1.0f, value));
+    }
+    return values;
+  }
+}
@@ -0,0 +1,131 @@
+package org.voegl.analogkey4j.processing;
+
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.key.HidKey;
+
+/**
+ * Assigns a {@link KeyProfile} to every {@link HidKey}, compiled into lookup tables indexed by the
+ * 8-bit raw travel of the key. Keys sharing a profile share its tables. Instances are created using
+ * {@link #builder()}, and are immutable, so they can be shared by any number of keyboards.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class KeyProfiles {
+
+  /** The profile of keys without a profile of their own. */
+  @Getter @ToString.Include private final KeyProfile defaultProfile;
+
+  @ToString.Include private final Map<HidKey, KeyProfile> profiles;
+
+  /* the value of every raw travel, by key ordinal */
+  final float[][] values = new float[AnalogKeySnapshot.KEY_COUNT][];
+
+  /* bitmasks of the raw travels that actuate a released key, by key ordinal */
+  final long[][] actuating = new long[AnalogKeySnapshot.KEY_COUNT][];
+
+  /* bitmasks of the raw travels that release an actuated key, by key ordinal */
+  final long[][] releasing = new long[AnalogKeySnapshot.KEY_COUNT][];
+
+  /* the profile of every key, by key ordinal, for the rapid trigger parameters */
+  final KeyProfile[] byKey = new KeyProfile[AnalogKeySnapshot.KEY_COUNT];
+
+  /**
+   * Constructs and compiles new key profiles.
+   *
+   * @param defaultProfile The profile of keys without a profile of their own, {@link
+   *     KeyProfile#DEFAULT} by default.
+   * @param profiles The profiles of individual keys.
+   */
+  @Builder
+  private KeyProfiles(KeyProfile defaultProfile, Map<HidKey, KeyProfile> profiles) {
+    this.defaultProfile = defaultProfile != null ? defaultProfile : KeyProfile.DEFAULT;
+    this.profiles = Map.copyOf(profiles);
+
+    Map<KeyProfile, Integer> compiled = new IdentityHashMap<>();
+    for (HidKey key : HidKey.values()) {
+      KeyProfile profile = getProfile(key);
+      int ordinal = key.ordinal();
+      byKey[ordinal] = profile;
+      Integer shared = compiled.putIfAbsent(profile, ordinal);
+      if (shared != null) {
+        values[ordinal] = values[shared];
+        actuating[ordinal] = actuating[shared];
+        releasing[ordinal] = releasing[shared];
+      } else {
+        compile(profile, ordinal);
+      }
+    }
+  }
+
+  /** Builds {@link KeyProfiles}, the profiles of individual keys are added one at a time. */
+  public static class KeyProfilesBuilder {
+    private final Map<HidKey, KeyProfile> profiles = new EnumMap<>(HidKey.class);
+
+    /**
+     * Sets the profile of a key, replacing any profile set before.
+     *
+     * @param key The key to set the profile for.
+     * @param profile The profile of the key.
+     * @return This builder.
+     */
+    public KeyProfilesBuilder profile(HidKey key, KeyProfile profile) {
+      profiles.put(Objects.requireNonNull(key, "key"), Objects.requireNonNull(profile, "profile"));
+      return this;
+    }
+
+    /**
+     * Sets the profiles of several keys, replacing any profiles set before for the same keys.
+     *
+     * @param profiles The profiles by key.
+     * @return This builder.
+     */
+    public KeyProfilesBuilder profiles(Map<HidKey, KeyProfile> profiles) {
+      profiles.forEach(this::profile);
+      return this;
+    }
+
+    /**
+     * Removes the profiles of all keys set before.
+     *
+     * @return This builder.
+     */
+    public KeyProfilesBuilder clearProfiles() {
+      profiles.clear();
+      return this;
+    }
+  }
+
+  private void compile(KeyProfile profile, int ordinal) {
+    float[] table = profile.compileValues();
+    long[] actuate = new long[table.length >>> 6];
+    long[] release = new long[table.length >>> 6];
+    float releasePoint = profile.getActuationPoint() - profile.getHysteresis();
+    for (int raw = 0; raw < table.length; raw++) {
+      if (table[raw] >= profile.getActuationPoint()) {
+        actuate[raw >>> 6] |= 1L << raw;
+      }
+      if (table[raw] < releasePoint || table[raw] == 0.0f) {
+        release[raw >>> 6] |= 1L << raw;
+      }
+    }
+    values[ordinal] = table;
+    actuating[ordinal] = actuate;
+    releasing[ordinal] = release;
+  }
+
+  /**
+   * Gets the profile of a key.
+   *
+   * @param key The key to get the profile for.
+   * @return The profile of the key, or the default profile if it has none of its own.
+   */
+  public KeyProfile getProfile(HidKey key) {
+    return profiles.getOrDefault(key, defaultProfile);
+  }
+}
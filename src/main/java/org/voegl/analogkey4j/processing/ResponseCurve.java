@@ -0,0 +1,76 @@
+package org.voegl.analogkey4j.processing;
+
+import java.util.Arrays;
+
+/**
+ * Maps the travel of a key outside its deadzones to the value reported to listeners. Curves are
+ * only evaluated when key profiles are compiled into lookup tables, never while reading reports.
+ */
+@FunctionalInterface
+public interface ResponseCurve {
+
+  /**
+   * Maps the travel of a key to its value.
+   *
+   * @param x The travel of the key between {@code 0.0} and {@code 1.0}.
+   * @return The value between {@code 0.0} and {@code 1.0}, values outside are clamped.
+   */
+  float apply(float x);
+
+  /**
+   * Gets a curve reporting the travel of a key unchanged.
+   *
+   * @return The linear curve.
+   */
+  static ResponseCurve linear() {
+    return x -> x;
+  }
+
+  /**
+   * Gets a curve raising the travel of a key to the given power. An exponent above {@code 1.0}
+   * gives finer control at the top of the travel, an exponent below at the bottom.
+   *
+   * @param exponent The exponent, greater than {@code 0.0}.
+   * @return The exponential curve.
+   */
+  static ResponseCurve exponential(float exponent) {
+    if (!(exponent > 0.0f) || Float.isInfinite(exponent)) {
+      throw new IllegalArgumentException("Invalid exponent " + exponent);
+    }
+    return x -> (float) Math.pow(x, exponent);
+  }
+
+  /**
+   * Gets a curve interpolating linearly between the given points. Travel before the first or after
+   * the last point is mapped to the value of that point.
+   *
+   * @param points The points as pairs of travel and value, such as {@code 0, 0, 0.5, 0.2, 1, 1},
+   *     ordered by strictly increasing travel.
+   * @return The curve through the points.
+   */
+  static ResponseCurve points(float... points) {
+    if (points.length < 4 || points.length % 2 != 0) {
+      throw new IllegalArgumentException("At least two points are needed");
+    }
+    float[] xs = new float[points.length / 2];
+    float[] ys = new float[points.length / 2];
+    for (int i = 0; i < xs.length; i++) {
+      xs[i] = points[2 * i];
+      ys[i] = points[2 * i + 1];
+      if (!(xs[i] >= 0.0f && xs[i] <= 1.0f) || (i > 0 && !(xs[i] > xs[i - 1]))) {
+        throw new IllegalArgumentException("Invalid curve points " + Arrays.toString(points));
+      }
+    }
+    return x -> {
+      if (x <= xs[0]) {
+        return ys[0];
+      }
+      for (int i = 1; i < xs.length; i++) {
+        if (x <= xs[i]) {
+          return ys[i - 1] + (ys[i] - ys[i - 1]) * (x - xs[i - 1]) / (xs[i] - xs[i - 1]);
+        }
+      }
+      return ys[ys.length - 1];
+    };
+  }
+}
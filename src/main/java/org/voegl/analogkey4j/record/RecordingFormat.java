@@ -0,0 +1,36 @@
+package org.voegl.analogkey4j.record;
+
+/**
+ * Describes the binary format of a report recording. A recording starts with a header made of
+ * {@link #MAGIC} and {@link #VERSION}, followed by records starting with a type byte:
+ *
+ * <ul>
+ *   <li>{@link #DEVICE}: {@code int id, int vendorId, int productId, int usagePage, string path,
+ *       string serialNumber}, where strings are an unsigned {@code short} length followed by UTF-8
+ *       bytes and a length of {@code 0xFFFF} is {@code null}.
+ *   <li>{@link #REPORT}: {@code long nanoTime, int id, unsigned short length, byte[length] report}.
+ * </ul>
+ *
+ * <p>All values are big-endian. The file is written through memory mapped chunks, so it is padded
+ * with zeros, and a type byte of {@link #END} marks the end of the recording.
+ */
+final class RecordingFormat {
+
+  /* "AK4R" */
+  static final int MAGIC = 0x414B3452;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8;
+
+  static final byte END = 0;
+  static final byte DEVICE = 1;
+  static final byte REPORT = 2;
+
+  /* type, nanoTime, id, length */
+  static final int REPORT_HEADER_SIZE = 1 + 8 + 4 + 2;
+  static final int MAX_REPORT_LENGTH = 0xFFFF;
+  static final int NULL_STRING = 0xFFFF;
+
+  private RecordingFormat() {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -0,0 +1,199 @@
+package org.voegl.analogkey4j.record;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.voegl.analogkey4j.transport.HidTransport;
+
+/**
+ * A {@link HidTransport} replaying the reports of a single device from a {@link ReportRecording},
+ * either with their original timing or as fast as they are read. Once all reports have been
+ * replayed, reads time out as if the keyboard was idle. Instances are created using {@link
+ * ReportRecording#createTransports(boolean)}.
+ */
+public class ReplayTransport implements HidTransport {
+
+  private final ReportRecording.RecordedDevice device;
+  private final String path;
+  private final ByteBuffer recording;
+  private final long recordingStartNanos;
+  private final boolean originalTiming;
+  private final byte[] reportDescriptor;
+  private volatile boolean open;
+  private volatile boolean finished;
+  private volatile Thread reader;
+  private long startNanos;
+
+  ReplayTransport(
+      ReportRecording.RecordedDevice device,
+      ByteBuffer recording,
+      long recordingStartNanos,
+      boolean originalTiming) {
+    this.device = device;
+    this.path = "replay:" + device.getPath();
+    this.recording = recording;
+    this.recordingStartNanos = recordingStartNanos;
+    this.originalTiming = originalTiming;
+    int reportSize = Math.max(device.getReportSize(), 1);
+    // report size (8), report count (reportSize), input
+    this.reportDescriptor =
+        new byte[] {
+          0x75, 0x08, (byte) 0x96, (byte) reportSize, (byte) (reportSize >> 8), (byte) 0x81, 0x02
+        };
+  }
+
+  /**
+   * Checks whether all reports of the device have been replayed.
+   *
+   * @return {@code true} if the replay has finished, {@code false} otherwise.
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /** {@inheritDoc} The replay starts from the beginning every time the transport is opened. */
+  @Override
+  public boolean open() {
+    recording.position(RecordingFormat.HEADER_SIZE);
+    finished = false;
+    startNanos = System.nanoTime();
+    open = true;
+    return true;
+  }
+
+  /** {@inheritDoc} Wakes up a read waiting for the next report. */
+  @Override
+  public void close() {
+    open = false;
+    Thread waiting = reader;
+    if (waiting != null) {
+      LockSupport.unpark(waiting);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int read(byte[] data, int timeoutMillis) {
+    if (!open) {
+      return -1;
+    }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    if (!skipToNextReport()) {
+      finished = true;
+      return await(Long.MAX_VALUE, deadline);
+    }
+
+    // the record header is left unread until the report is due
+    int start = recording.position();
+    if (originalTiming) {
+      long due = startNanos + recording.getLong(start + 1) - recordingStartNanos;
+      int result = await(due, deadline);
+      if (result != 1) {
+        return result;
+      }
+    }
+    int len = Short.toUnsignedInt(recording.getShort(start + 1 + 8 + 4));
+    int copied = Math.min(len, data.length);
+    recording.get(start + RecordingFormat.REPORT_HEADER_SIZE, data, 0, copied);
+    recording.position(start + RecordingFormat.REPORT_HEADER_SIZE + len);
+    return copied;
+  }
+
+  /**
+   * Advances the recording to the next report of this device.
+   *
+   * @return {@code true} if a report was found, {@code false} if the recording has ended.
+   */
+  private boolean skipToNextReport() {
+    while (recording.hasRemaining()) {
+      int start = recording.position();
+      byte type = recording.get(start);
+      if (type == RecordingFormat.REPORT) {
+        if (recording.getInt(start + 1 + 8) == device.getId()) {
+          return true;
+        }
+        int len = Short.toUnsignedInt(recording.getShort(start + 1 + 8 + 4));
+        recording.position(start + RecordingFormat.REPORT_HEADER_SIZE + len);
+      } else if (type == RecordingFormat.DEVICE) {
+        // id, vendor id, product id, usage page
+        int position = start + 1 + 4 * 4;
+        for (int i = 0; i < 2; i++) {
+          int len = Short.toUnsignedInt(recording.getShort(position));
+          position += 2 + (len == RecordingFormat.NULL_STRING ? 0 : len);
+        }
+        recording.position(position);
+      } else {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Waits until a report is due, the read times out or the transport is closed.
+   *
+   * @return {@code 1} if the report is due, {@code 0} on timeout or {@code -1} if closed.
+   */
+  private int await(long due, long deadline) {
+    reader = Thread.currentThread();
+    try {
+      long now;
+      while ((now = System.nanoTime()) < due) {
+        if (!open) {
+          return -1;
+        }
+        if (now >= deadline) {
+          return 0;
+        }
+        LockSupport.parkNanos(this, Math.min(due, deadline) - now);
+      }
+      return 1;
+    } finally {
+      reader = null;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getLastErrorMessage() {
+    return open ? "" : "Device has not been opened";
+  }
+
+  /** {@inheritDoc} The descriptor describes a single input report of the largest recorded size. */
+  @Override
+  public int getReportDescriptor(byte[] descriptor) {
+    int len = Math.min(reportDescriptor.length, descriptor.length);
+    System.arraycopy(reportDescriptor, 0, descriptor, 0, len);
+    return len;
+  }
+
+  /** {@inheritDoc} The recorded path is prefixed, so a replay is never mistaken for the device. */
+  @Override
+  public String getPath() {
+    return path;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getVendorId() {
+    return device.getVendorId();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getProductId() {
+    return device.getProductId();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getUsagePage() {
+    return device.getUsagePage();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getSerialNumber() {
+    return device.getSerialNumber();
+  }
+}
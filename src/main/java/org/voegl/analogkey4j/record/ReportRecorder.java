@@ -0,0 +1,282 @@
+package org.voegl.analogkey4j.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.voegl.analogkey4j.transport.HidTransport;
+
+/**
+ * Records the raw reports read from analog keyboards into an append-only file, which can be
+ * replayed using {@link ReportRecording}. Reports are written into memory mapped chunks of the
+ * file, so recording a report does not allocate and rarely enters the kernel. A recorder is shared
+ * by any number of devices, each writing through its own {@link Track}. Tracks claim the space of a
+ * record with a CAS on the write position of the current chunk and write it without taking a lock,
+ * only mapping the next chunk is serialized.
+ *
+ * <p>A recorder is attached to a keyboard using {@link
+ * org.voegl.analogkey4j.AnalogKeyboardManager#setRecorder(ReportRecorder)} and must be closed to
+ * flush the recording to disk.
+ */
+public class ReportRecorder implements Closeable {
+
+  /** The default size of the memory mapped chunks the recording is written through. */
+  public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+  /* the write position of a chunk that no longer accepts records */
+  private static final int SEALED = -1;
+
+  private final FileChannel channel;
+  private final int chunkSize;
+  private volatile Chunk chunk;
+  /* the chunks mapped before the current one, tracks may still be writing to their last records */
+  private final List<Chunk> sealed = new ArrayList<>();
+  private int nextId;
+  private volatile boolean closed;
+
+  /** A memory mapped chunk of the file, records are claimed by advancing its write position. */
+  private static final class Chunk {
+    final MappedByteBuffer buffer;
+    /* the offset of the chunk in the file */
+    final long start;
+    final AtomicInteger position;
+
+    Chunk(MappedByteBuffer buffer, long start, int position) {
+      this.buffer = buffer;
+      this.start = start;
+      this.position = new AtomicInteger(position);
+    }
+
+    /**
+     * Claims the space of a record.
+     *
+     * @param size The size of the record.
+     * @return The index of the claimed space, or {@code -1} if the chunk cannot hold the record.
+     */
+    int claim(int size) {
+      while (true) {
+        int at = position.get();
+        if (at == SEALED || at > buffer.capacity() - size) {
+          return -1;
+        }
+        if (position.compareAndSet(at, at + size)) {
+          return at;
+        }
+      }
+    }
+  }
+
+  /** The reports of a single device in a recording. */
+  public final class Track {
+    private final int id;
+
+    private Track(int id) {
+      this.id = id;
+    }
+
+    /**
+     * Appends a report read from the device to the recording, stamped with the current {@link
+     * System#nanoTime()}. Reports recorded after the recorder has been closed are discarded.
+     *
+     * @param data The buffer holding the report.
+     * @param len The length of the report, at most {@code 0xFFFF} bytes.
+     * @throws UncheckedIOException If the recording could not be extended.
+     */
+    public void record(byte[] data, int len) {
+      append(id, data, len);
+    }
+  }
+
+  /**
+   * Creates a new recording, replacing any existing file.
+   *
+   * @param path The path of the recording.
+   * @throws IOException If the file could not be created.
+   */
+  public ReportRecorder(Path path) throws IOException {
+    this(path, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a new recording, replacing any existing file.
+   *
+   * @param path The path of the recording.
+   * @param chunkSize The size of the memory mapped chunks the recording is written through. It must
+   *     be large enough for the largest report.
+   * @throws IOException If the file could not be created.
+   */
+  public ReportRecorder(Path path, int chunkSize) throws IOException {
+    if (chunkSize < RecordingFormat.REPORT_HEADER_SIZE + RecordingFormat.MAX_REPORT_LENGTH) {
+      throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+    this.channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    MappedByteBuffer buffer;
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, chunkSize);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    buffer.putInt(0, RecordingFormat.MAGIC);
+    buffer.putInt(4, RecordingFormat.VERSION);
+    chunk = new Chunk(buffer, 0, RecordingFormat.HEADER_SIZE);
+  }
+
+  /**
+   * Adds a device to the recording. Its details are written once, and its reports are recorded
+   * through the returned track.
+   *
+   * @param transport The transport of the device.
+   * @return The track to record the device's reports with.
+   * @throws UncheckedIOException If the recording could not be extended.
+   */
+  public Track addDevice(HidTransport transport) {
+    byte[] path = encode(transport.getPath());
+    byte[] serialNumber = encode(transport.getSerialNumber());
+    int id;
+    synchronized (this) {
+      id = nextId++;
+    }
+    int size = 1 + 4 * 4 + 2 + length(path) + 2 + length(serialNumber);
+    if (size > chunkSize) {
+      throw new IllegalArgumentException("Device details are too long to record");
+    }
+    if (!closed) {
+      Chunk target = chunk;
+      int at = target.claim(size);
+      while (at < 0) {
+        target = nextChunk(target);
+        at = target.claim(size);
+      }
+      MappedByteBuffer buffer = target.buffer;
+      buffer.putInt(at + 1, id);
+      buffer.putInt(at + 5, transport.getVendorId());
+      buffer.putInt(at + 9, transport.getProductId());
+      buffer.putInt(at + 13, transport.getUsagePage());
+      putString(buffer, putString(buffer, at + 17, path), serialNumber);
+      commit(buffer, at, RecordingFormat.DEVICE);
+    }
+    return new Track(id);
+  }
+
+  private void append(int id, byte[] data, int len) {
+    if (closed) {
+      return;
+    }
+    if (len < 0 || len > RecordingFormat.MAX_REPORT_LENGTH) {
+      throw new IllegalArgumentException("Invalid report length " + len);
+    }
+    int size = RecordingFormat.REPORT_HEADER_SIZE + len;
+    Chunk target = chunk;
+    int at = target.claim(size);
+    while (at < 0) {
+      target = nextChunk(target);
+      at = target.claim(size);
+    }
+    MappedByteBuffer buffer = target.buffer;
+    buffer.putLong(at + 1, System.nanoTime());
+    buffer.putInt(at + 9, id);
+    buffer.putShort(at + 13, (short) len);
+    buffer.put(at + RecordingFormat.REPORT_HEADER_SIZE, data, 0, len);
+    commit(buffer, at, RecordingFormat.REPORT);
+  }
+
+  /**
+   * Writes the type byte of a record after its contents. Until then the record reads as {@link
+   * RecordingFormat#END}, so a record still being written when the recorder is closed ends the
+   * recording instead of corrupting it.
+   */
+  private static void commit(MappedByteBuffer buffer, int at, byte type) {
+    VarHandle.releaseFence();
+    buffer.put(at, type);
+  }
+
+  /**
+   * Maps the chunk following a full one, unless another track already did. The full chunk is sealed
+   * first, so the next chunk starts right after its last claimed record, records are never split
+   * and there are no gaps between them.
+   *
+   * @param full The chunk that could not hold a record.
+   * @return The current chunk.
+   * @throws UncheckedIOException If the next chunk could not be mapped.
+   */
+  private synchronized Chunk nextChunk(Chunk full) {
+    if (chunk != full) {
+      return chunk;
+    }
+    int end = full.position.getAndSet(SEALED);
+    long start = full.start + end;
+    try {
+      chunk = new Chunk(channel.map(FileChannel.MapMode.READ_WRITE, start, chunkSize), start, 0);
+    } catch (IOException e) {
+      full.position.set(end);
+      throw new UncheckedIOException(e);
+    }
+    sealed.add(full);
+    return chunk;
+  }
+
+  private static byte[] encode(String value) {
+    if (value == null) {
+      return null;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length >= RecordingFormat.NULL_STRING) {
+      throw new IllegalArgumentException("String is too long to record: " + value);
+    }
+    return bytes;
+  }
+
+  private static int length(byte[] bytes) {
+    return bytes != null ? bytes.length : 0;
+  }
+
+  /* writes a string at the given index and returns the index following it */
+  private static int putString(MappedByteBuffer buffer, int at, byte[] bytes) {
+    if (bytes == null) {
+      buffer.putShort(at, (short) RecordingFormat.NULL_STRING);
+      return at + 2;
+    }
+    buffer.putShort(at, (short) bytes.length);
+    buffer.put(at + 2, bytes);
+    return at + 2 + bytes.length;
+  }
+
+  /**
+   * Flushes the recording to disk and closes the file. Every chunk is flushed, including the ones
+   * sealed before the current chunk, as tracks may have finished their records in them after the
+   * next chunk was mapped. Reports recorded afterward are discarded.
+   *
+   * @throws IOException If the recording could not be flushed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      for (Chunk full : sealed) {
+        full.buffer.force();
+      }
+      chunk.buffer.force();
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package org.voegl.analogkey4j.record;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * A recording written by a {@link ReportRecorder}. Each recorded device is replayed through its own
+ * {@link ReplayTransport}, which can be attached using {@link
+ * org.voegl.analogkey4j.AnalogKeyboardManager#attach(org.voegl.analogkey4j.transport.HidTransport)}
+ * to feed the reports through the device's parser and the listeners again.
+ */
+public class ReportRecording {
+
+  private final ByteBuffer buffer;
+  private final List<RecordedDevice> devices = new ArrayList<>();
+  /* the time of the first report, which replays are timed relative to */
+  private long startNanos;
+  @Getter private long reportCount;
+
+  /** The details of a recorded device. */
+  @Getter
+  static class RecordedDevice {
+    private final int id;
+    private final int vendorId;
+    private final int productId;
+    private final int usagePage;
+    private final String path;
+    private final String serialNumber;
+    private int reportSize;
+
+    private RecordedDevice(
+        int id, int vendorId, int productId, int usagePage, String path, String serialNumber) {
+      this.id = id;
+      this.vendorId = vendorId;
+      this.productId = productId;
+      this.usagePage = usagePage;
+      this.path = path;
+      this.serialNumber = serialNumber;
+    }
+  }
+
+  private ReportRecording(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.remaining() < RecordingFormat.HEADER_SIZE
+        || buffer.getInt() != RecordingFormat.MAGIC) {
+      throw new IOException("Not a report recording");
+    }
+    int version = buffer.getInt();
+    if (version != RecordingFormat.VERSION) {
+      throw new IOException("Unsupported recording version " + version);
+    }
+    try {
+      scan();
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Recording is truncated", e);
+    }
+  }
+
+  /**
+   * Opens a recording by mapping it into memory.
+   *
+   * @param path The path of the recording.
+   * @return The recording.
+   * @throws IOException If the file could not be read or is not a valid recording.
+   */
+  public static ReportRecording open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Recording is too large to be mapped");
+      }
+      return new ReportRecording(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /* reads the recorded devices and validates all records */
+  private void scan() throws IOException {
+    boolean first = true;
+    while (buffer.hasRemaining()) {
+      byte type = buffer.get();
+      if (type == RecordingFormat.END) {
+        break;
+      } else if (type == RecordingFormat.DEVICE) {
+        devices.add(
+            new RecordedDevice(
+                buffer.getInt(),
+                buffer.getInt(),
+                buffer.getInt(),
+                buffer.getInt(),
+                getString(),
+                getString()));
+      } else if (type == RecordingFormat.REPORT) {
+        long nanoTime = buffer.getLong();
+        RecordedDevice device = getDevice(buffer.getInt());
+        int len = Short.toUnsignedInt(buffer.getShort());
+        buffer.position(buffer.position() + len);
+        device.reportSize = Math.max(device.reportSize, len);
+        if (first) {
+          startNanos = nanoTime;
+          first = false;
+        }
+        reportCount++;
+      } else {
+        throw new IOException("Invalid record type " + type + " at " + (buffer.position() - 1));
+      }
+    }
+  }
+
+  private RecordedDevice getDevice(int id) throws IOException {
+    for (RecordedDevice device : devices) {
+      if (device.id == id) {
+        return device;
+      }
+    }
+    throw new IOException("Report of unknown device " + id);
+  }
+
+  private String getString() {
+    int len = Short.toUnsignedInt(buffer.getShort());
+    if (len == RecordingFormat.NULL_STRING) {
+      return null;
+    }
+    byte[] bytes = new byte[len];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Creates transports replaying the reports of every recorded device.
+   *
+   * @param originalTiming {@code true} to replay the reports with their original timing, relative
+   *     to the first report of the recording, or {@code false} to replay them as fast as they are
+   *     read.
+   * @return A {@link List} holding a transport for every recorded device.
+   */
+  public List<ReplayTransport> createTransports(boolean originalTiming) {
+    List<ReplayTransport> transports = new ArrayList<>(devices.size());
+    for (RecordedDevice device : devices) {
+      transports.add(
+          new ReplayTransport(device, buffer.duplicate().position(0), startNanos, originalTiming));
+    }
+    return Collections.unmodifiableList(transports);
+  }
+}
@@ -0,0 +1,72 @@
+package org.voegl.analogkey4j.state;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.key.HidKey;
+
+/**
+ * A lock-free table holding the current pressed amount of every {@link HidKey} of a keyboard. The
+ * values are stored as float bits in an {@link AtomicIntegerArray} indexed by {@link
+ * HidKey#ordinal()}. It is updated by the keyboard's reader thread and can be polled by any thread
+ * without allocating.
+ */
+public class KeyStateTable {
+
+  private final AtomicIntegerArray values = new AtomicIntegerArray(AnalogKeySnapshot.KEY_COUNT);
+
+  /**
+   * Gets the current pressed amount of a key.
+   *
+   * @param key The key to get the value for.
+   * @return The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public float getValue(HidKey key) {
+    return Float.intBitsToFloat(values.get(key.ordinal()));
+  }
+
+  /**
+   * Gets the current pressed amount of a key by its {@link HidKey#ordinal()}.
+   *
+   * @param ordinal The ordinal of the key to get the value for.
+   * @return The pressed amount between {@code 0.0} and {@code 1.0}.
+   */
+  public float getValue(int ordinal) {
+    return Float.intBitsToFloat(values.get(ordinal));
+  }
+
+  /**
+   * Copies the current pressed amount of all keys into an array indexed by {@link
+   * HidKey#ordinal()}. Each value is read atomically, but the table may be updated while it is
+   * copied.
+   *
+   * @param out The array to copy into, it must hold at least {@link AnalogKeySnapshot#KEY_COUNT}
+   *     values.
+   */
+  public void readAll(float[] out) {
+    if (out.length < AnalogKeySnapshot.KEY_COUNT) {
+      throw new IllegalArgumentException(
+          "Array must hold " + AnalogKeySnapshot.KEY_COUNT + " keys");
+    }
+    for (int i = 0; i < AnalogKeySnapshot.KEY_COUNT; i++) {
+      out[i] = Float.intBitsToFloat(values.get(i));
+    }
+  }
+
+  /**
+   * Updates the table with the keys that have changed in a snapshot.
+   *
+   * @param snapshot The key states with the keys that have changed marked.
+   */
+  public void update(AnalogKeySnapshot snapshot) {
+    for (int i = snapshot.nextChanged(0); i >= 0; i = snapshot.nextChanged(i + 1)) {
+      values.lazySet(i, Float.floatToRawIntBits(snapshot.getValue(i)));
+    }
+  }
+
+  /** Resets all keys to {@code 0.0}. */
+  public void reset() {
+    for (int i = 0; i < AnalogKeySnapshot.KEY_COUNT; i++) {
+      values.lazySet(i, 0);
+    }
+  }
+}
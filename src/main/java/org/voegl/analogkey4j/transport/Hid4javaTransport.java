@@ -0,0 +1,102 @@
+package org.voegl.analogkey4j.transport;
+
+import java.util.Objects;
+import lombok.Getter;
+import org.hid4java.HidDevice;
+
+/** A {@link HidTransport} reading from a physical device using hid4java. */
+public class Hid4javaTransport implements HidTransport {
+
+  @Getter private final HidDevice device;
+
+  /**
+   * Constructs a new transport for a hid4java device.
+   *
+   * @param device The underlying {@link HidDevice}.
+   */
+  public Hid4javaTransport(HidDevice device) {
+    this.device = device;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean open() {
+    return device.open();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() {
+    device.close();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int read(byte[] data, int timeoutMillis) {
+    return device.read(data, timeoutMillis);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>hid4java reads through JNA, so a read blocks in {@code hid_read_timeout}.
+   */
+  @Override
+  public boolean readsInNativeCode() {
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getLastErrorMessage() {
+    return device.getLastErrorMessage();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getReportDescriptor(byte[] descriptor) {
+    return device.getReportDescriptor(descriptor);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getPath() {
+    return device.getPath();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getVendorId() {
+    return device.getVendorId();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getProductId() {
+    return device.getProductId();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getUsagePage() {
+    return device.getUsagePage();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getSerialNumber() {
+    return device.getSerialNumber();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == null || getClass() != o.getClass()) return false;
+    Hid4javaTransport that = (Hid4javaTransport) o;
+    return Objects.equals(device, that.device);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(device);
+  }
+}
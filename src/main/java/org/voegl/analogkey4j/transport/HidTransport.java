@@ -0,0 +1,90 @@
+package org.voegl.analogkey4j.transport;
+
+/**
+ * An abstraction of the HID device an analog keyboard is read from. It allows driving the library
+ * with backends other than hid4java, such as {@link SyntheticTransport} for load tests. Two
+ * transports are equal if they refer to the same device.
+ */
+public interface HidTransport {
+
+  /**
+   * Opens the device in blocking mode.
+   *
+   * @return {@code true} if the device was opened, {@code false} otherwise.
+   */
+  boolean open();
+
+  /** Closes the device. Reading from a closed device fails. */
+  void close();
+
+  /**
+   * Reads a single input report, waiting at most the given time for one to arrive.
+   *
+   * @param data The buffer to read the report into.
+   * @param timeoutMillis The maximum time to wait for a report in milliseconds.
+   * @return The length of the report, {@code 0} if no report arrived in time or {@code -1} if an
+   *     error occurred.
+   */
+  int read(byte[] data, int timeoutMillis);
+
+  /**
+   * Checks whether a read blocks inside native code. A virtual thread blocked in native code pins
+   * its carrier thread, so keyboards on such transports are polled without blocking in virtual
+   * thread mode.
+   *
+   * @return {@code true} if reads block in native code, {@code false} by default.
+   */
+  default boolean readsInNativeCode() {
+    return false;
+  }
+
+  /**
+   * Gets the message of the last error that occurred.
+   *
+   * @return The error message.
+   */
+  String getLastErrorMessage();
+
+  /**
+   * Reads the HID report descriptor of the device.
+   *
+   * @param descriptor The buffer to read the descriptor into.
+   * @return The length of the descriptor, or {@code -1} if it is not available.
+   */
+  int getReportDescriptor(byte[] descriptor);
+
+  /**
+   * Gets the path uniquely identifying the device.
+   *
+   * @return The path of this device.
+   */
+  String getPath();
+
+  /**
+   * Gets the vendor id of the device.
+   *
+   * @return The vendor id of this device.
+   */
+  int getVendorId();
+
+  /**
+   * Gets the product id of the device.
+   *
+   * @return The product id of this device.
+   */
+  int getProductId();
+
+  /**
+   * Gets the usage page of the device.
+   *
+   * @return The usage page of this device.
+   */
+  int getUsagePage();
+
+  /**
+   * Gets the serial number of the device.
+   *
+   * @return The serial number of this device.
+   */
+  String getSerialNumber();
+}
@@ -0,0 +1,197 @@
+package org.voegl.analogkey4j.transport;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import lombok.Builder;
+
+/**
+ * An in-memory {@link HidTransport} generating reports at a configurable rate, which allows load
+ * testing, benchmarking and profiling the library without hardware. Instances are created using
+ * {@link #builder()}.
+ */
+public class SyntheticTransport implements HidTransport {
+
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+
+  private final String path;
+  private final int vendorId;
+  private final int productId;
+  private final int usagePage;
+  private final String serialNumber;
+  private final int reportSize;
+  private final long periodNanos;
+  private final ReportGenerator generator;
+  private final byte[] reportDescriptor;
+  private volatile boolean open;
+  private volatile Thread reader;
+  private long startNanos;
+  private long sequence;
+
+  /** Generates the content of synthetic reports. */
+  @FunctionalInterface
+  public interface ReportGenerator {
+    /**
+     * Writes a report into a zeroed buffer.
+     *
+     * @param sequence The number of reports generated before this one.
+     * @param report The buffer to write the report into.
+     * @return The length of the report.
+     */
+    int generate(long sequence, byte[] report);
+
+    /**
+     * Creates a generator replaying the given reports over and over again.
+     *
+     * @param reports The reports to replay.
+     * @return A generator cycling through the reports.
+     */
+    static ReportGenerator cycling(byte[]... reports) {
+      return (sequence, report) -> {
+        byte[] next = reports[(int) (sequence % reports.length)];
+        int len = Math.min(next.length, report.length);
+        System.arraycopy(next, 0, report, 0, len);
+        return len;
+      };
+    }
+  }
+
+  /**
+   * Constructs a new synthetic transport.
+   *
+   * @param path The path identifying the device, a unique path is used if {@code null}.
+   * @param vendorId The vendor id of the device.
+   * @param productId The product id of the device.
+   * @param usagePage The usage page of the device.
+   * @param serialNumber The serial number of the device.
+   * @param reportSize The length of the generated reports in bytes, at most {@code 0xFFFF}.
+   * @param reportsPerSecond The rate reports are generated at, or {@code 0} to generate them as
+   *     fast as they are read.
+   * @param generator The generator writing the content of the reports.
+   */
+  @Builder
+  private SyntheticTransport(
+      String path,
+      int vendorId,
+      int productId,
+      int usagePage,
+      String serialNumber,
+      int reportSize,
+      int reportsPerSecond,
+      ReportGenerator generator) {
+    if (reportSize <= 0 || reportSize > 0xFFFF) {
+      throw new IllegalArgumentException("Invalid report size " + reportSize);
+    }
+    if (reportsPerSecond < 0) {
+      throw new IllegalArgumentException("Invalid report rate " + reportsPerSecond);
+    }
+    this.path = path != null ? path : "synthetic-" + COUNTER.incrementAndGet();
+    this.vendorId = vendorId;
+    this.productId = productId;
+    this.usagePage = usagePage;
+    this.serialNumber = serialNumber;
+    this.reportSize = reportSize;
+    this.periodNanos = reportsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / reportsPerSecond : 0;
+    this.generator = Objects.requireNonNull(generator, "generator");
+    // report size (8), report count (reportSize), input
+    this.reportDescriptor =
+        new byte[] {
+          0x75, 0x08, (byte) 0x96, (byte) reportSize, (byte) (reportSize >> 8), (byte) 0x81, 0x02
+        };
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean open() {
+    startNanos = System.nanoTime();
+    sequence = 0;
+    open = true;
+    return true;
+  }
+
+  /** {@inheritDoc} Wakes up a read waiting for the next report. */
+  @Override
+  public void close() {
+    open = false;
+    Thread waiting = reader;
+    if (waiting != null) {
+      LockSupport.unpark(waiting);
+    }
+  }
+
+  /** {@inheritDoc} Reports are generated on the reading thread. */
+  @Override
+  public int read(byte[] data, int timeoutMillis) {
+    if (!open) {
+      return -1;
+    }
+    if (periodNanos > 0) {
+      long due = startNanos + sequence * periodNanos;
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      reader = Thread.currentThread();
+      try {
+        long now;
+        while ((now = System.nanoTime()) < due) {
+          if (!open) {
+            return -1;
+          }
+          if (now >= deadline) {
+            return 0;
+          }
+          LockSupport.parkNanos(this, Math.min(due, deadline) - now);
+        }
+      } finally {
+        reader = null;
+      }
+    }
+
+    Arrays.fill(data, (byte) 0);
+    return Math.min(generator.generate(sequence++, data), Math.min(reportSize, data.length));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getLastErrorMessage() {
+    return open ? "" : "Device has not been opened";
+  }
+
+  /** {@inheritDoc} The descriptor describes a single input report of the configured size. */
+  @Override
+  public int getReportDescriptor(byte[] descriptor) {
+    int len = Math.min(reportDescriptor.length, descriptor.length);
+    System.arraycopy(reportDescriptor, 0, descriptor, 0, len);
+    return len;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getPath() {
+    return path;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getVendorId() {
+    return vendorId;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getProductId() {
+    return productId;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getUsagePage() {
+    return usagePage;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getSerialNumber() {
+    return serialNumber;
+  }
+}
@@ -0,0 +1,445 @@
+package org.voegl.analogkey4j.event;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+
+class AnalogKeyboardListenerListTest {
+
+  private static final AnalogKeyboardDevice DEVICE = mock(AnalogKeyboardDevice.class);
+  private final AnalogKeyboardListenerList listeners = new AnalogKeyboardListenerList();
+  private final RecordingListener listener = new RecordingListener();
+
+  /** A listener recording all events, which can be blocked on its key events. */
+  private static class RecordingListener implements AnalogKeyboardListener {
+    final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    final List<AnalogKeySnapshot> snapshots = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch closed = new CountDownLatch(1);
+    final CountDownLatch firstKeys = new CountDownLatch(1);
+    volatile CountDownLatch blocker = new CountDownLatch(0);
+    volatile Thread keysThread;
+
+    @Override
+    public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+      events.add("keys");
+      keysThread = Thread.currentThread();
+      snapshots.add(snapshot.copy());
+      firstKeys.countDown();
+      try {
+        blocker.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void keysActuated(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+      events.add(snapshot.isKeyDown(HidKey.A) ? "down" : "up");
+    }
+
+    @Override
+    public void keyPressed(AnalogKeyboardDevice keyboard, Set<AnalogKeyState> keyStates) {
+      events.add("pressed");
+    }
+
+    @Override
+    public void keyboardAdded(AnalogKeyboardDevice keyboard) {
+      events.add("added");
+    }
+
+    @Override
+    public void keyboardRemoved(AnalogKeyboardDevice keyboard) {
+      events.add("removed");
+    }
+
+    @Override
+    public void keyboardOpened(AnalogKeyboardDevice keyboard) {
+      events.add("opened");
+    }
+
+    @Override
+    public void keyboardClosed(AnalogKeyboardDevice keyboard) {
+      events.add("closed");
+      closed.countDown();
+    }
+
+    @Override
+    public void keyboardError(AnalogKeyboardDevice keyboard, String message) {
+      events.add("error " + message);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    listener.blocker.countDown();
+    listeners.remove(listener);
+  }
+
+  private static AnalogKeySnapshot snapshot(HidKey key, float value) {
+    AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+    snapshot.set(key.ordinal(), value);
+    return snapshot;
+  }
+
+  private void fireKeys(int count) {
+    AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+    for (int i = 1; i <= count; i++) {
+      snapshot.clearChanges();
+      snapshot.set(HidKey.A.ordinal(), i / (float) count);
+      snapshot.stamp(i, i * 1000L);
+      listeners.fireKeysChanged(DEVICE, snapshot);
+    }
+  }
+
+  @Test
+  void testEventsAreDeliveredInOrder() throws InterruptedException {
+    listeners.add(listener);
+
+    listeners.fireKeyboardAdded(DEVICE);
+    listeners.fireKeyboardOpened(DEVICE);
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.A, 1.0f));
+    listeners.fireKeyPressed(DEVICE, Set.of(new AnalogKeyState(HidKey.A, 0.0f)));
+    listeners.fireKeyboardError(DEVICE, "failure");
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.events)
+        .containsExactly("added", "opened", "keys", "pressed", "error failure", "closed")
+        .inOrder();
+  }
+
+  @Test
+  void testBlockDeliversAllEvents() throws InterruptedException {
+    listeners.add(
+        listener,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.BLOCK).bufferSize(4).build());
+
+    fireKeys(100);
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.snapshots).hasSize(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(listener.snapshots.get(i).getValue(HidKey.A)).isEqualTo((i + 1) / 100.0f);
+      assertThat(listener.snapshots.get(i).getSequence()).isEqualTo(i + 1);
+    }
+  }
+
+  @Test
+  void testBlockDeliversAllEventsOfMoreProducersThanSlots() throws InterruptedException {
+    listeners.add(
+        listener,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.BLOCK).bufferSize(2).build());
+    List<Thread> producers = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      Thread producer = new Thread(() -> fireKeys(200));
+      producer.start();
+      producers.add(producer);
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.snapshots).hasSize(8 * 200);
+    assertThat(listeners.getMetrics().get(0).getDroppedEvents()).isEqualTo(0);
+  }
+
+  @Test
+  void testBlockDeliversEventsTheListenerPublishesToItself() throws InterruptedException {
+    List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch delivered = new CountDownLatch(1);
+    AnalogKeyboardListener publishing =
+        new RecordingListener() {
+          @Override
+          public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+            // more events than the ring buffer holds, published from the event thread
+            for (int i = 0; i < 8; i++) {
+              listeners.fireKeyboardError(DEVICE, String.valueOf(i));
+            }
+            listeners.fireKeyboardClosed(DEVICE);
+          }
+
+          @Override
+          public void keyboardError(AnalogKeyboardDevice keyboard, String message) {
+            errors.add(message);
+          }
+
+          @Override
+          public void keyboardClosed(AnalogKeyboardDevice keyboard) {
+            delivered.countDown();
+          }
+        };
+    listeners.add(
+        publishing,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.BLOCK).bufferSize(2).build());
+
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.A, 1.0f));
+
+    assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(errors).containsExactly("0", "1", "2", "3", "4", "5", "6", "7").inOrder();
+    listeners.remove(publishing);
+  }
+
+  @Test
+  void testDropOldestDoesNotWaitForListener() throws InterruptedException {
+    listener.blocker = new CountDownLatch(1);
+    listeners.add(
+        listener,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.DROP_OLDEST).bufferSize(4).build());
+
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.B, 1.0f));
+    assertThat(listener.firstKeys.await(5, TimeUnit.SECONDS)).isTrue();
+    fireKeys(100);
+    listeners.fireKeyboardClosed(DEVICE);
+    listener.blocker.countDown();
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.snapshots.size()).isLessThan(101);
+    assertThat(listener.snapshots.get(listener.snapshots.size() - 1).getValue(HidKey.A))
+        .isEqualTo(1.0f);
+  }
+
+  @Test
+  void testCoalesceMergesPendingKeyEvents() throws InterruptedException {
+    listener.blocker = new CountDownLatch(1);
+    listeners.add(
+        listener,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.COALESCE).bufferSize(4).build());
+
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.C, 1.0f));
+    assertThat(listener.firstKeys.await(5, TimeUnit.SECONDS)).isTrue();
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.B, 1.0f));
+    fireKeys(100);
+    listeners.fireKeyboardClosed(DEVICE);
+    listener.blocker.countDown();
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.snapshots).hasSize(2);
+    AnalogKeySnapshot merged = listener.snapshots.get(1);
+    assertThat(merged.isChanged(HidKey.A)).isTrue();
+    assertThat(merged.isChanged(HidKey.B)).isTrue();
+    assertThat(merged.isChanged(HidKey.C)).isFalse();
+    assertThat(merged.getValue(HidKey.A)).isEqualTo(1.0f);
+    assertThat(merged.getValue(HidKey.B)).isEqualTo(1.0f);
+    assertThat(merged.getSequence()).isEqualTo(100);
+    assertThat(merged.getTimestamp()).isEqualTo(100_000);
+  }
+
+  @Test
+  void testCoalesceKeepsActuationEvents() throws InterruptedException {
+    listener.blocker = new CountDownLatch(1);
+    listeners.add(
+        listener,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.COALESCE).bufferSize(8).build());
+
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.C, 1.0f));
+    assertThat(listener.firstKeys.await(5, TimeUnit.SECONDS)).isTrue();
+    AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+    for (int i = 0; i < 4; i++) {
+      snapshot.clearChanges();
+      snapshot.set(HidKey.A.ordinal(), i % 2 == 0 ? 1.0f : 0.0f);
+      snapshot.setActuated(HidKey.A.ordinal(), i % 2 == 0);
+      listeners.fireKeysActuated(DEVICE, snapshot);
+    }
+    listeners.fireKeyboardClosed(DEVICE);
+    listener.blocker.countDown();
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.events)
+        .containsExactly("keys", "keys", "down", "up", "down", "up", "closed")
+        .inOrder();
+  }
+
+  @Test
+  void testCoalesceDeliversValueChangeBeforeActuation() throws InterruptedException {
+    listeners.add(
+        listener,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.COALESCE).bufferSize(4).build());
+
+    // fired like a device does, the actuation ahead of the key change of the same report
+    AnalogKeySnapshot snapshot = snapshot(HidKey.A, 1.0f);
+    snapshot.setActuated(HidKey.A.ordinal(), true);
+    listeners.fireKeysActuated(DEVICE, snapshot);
+    listeners.fireKeysChanged(DEVICE, snapshot);
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.events.get(0)).isEqualTo("keys");
+    assertThat(listener.events).contains("down");
+    assertThat(listener.snapshots.get(0).getValue(HidKey.A)).isEqualTo(1.0f);
+  }
+
+  /**
+   * Fires a key going down while the listener is busy and returns the snapshot it receives.
+   *
+   * @param policy The overflow policy of the listener.
+   * @return The snapshot the listener received for the key going down.
+   */
+  private AnalogKeySnapshot fireKeyDownWhileBusy(OverflowPolicy policy)
+      throws InterruptedException {
+    listener.blocker = new CountDownLatch(1);
+    listeners.add(listener, ListenerOptions.builder().overflowPolicy(policy).bufferSize(4).build());
+
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.C, 1.0f));
+    assertThat(listener.firstKeys.await(5, TimeUnit.SECONDS)).isTrue();
+    AnalogKeySnapshot snapshot = snapshot(HidKey.A, 1.0f);
+    snapshot.setActuated(HidKey.A.ordinal(), true);
+    listeners.fireKeysChanged(DEVICE, snapshot);
+    listeners.fireKeyboardClosed(DEVICE);
+    listener.blocker.countDown();
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.snapshots).hasSize(2);
+    return listener.snapshots.get(1);
+  }
+
+  @Test
+  void testBlockDeliversKeyDown() throws InterruptedException {
+    AnalogKeySnapshot snapshot = fireKeyDownWhileBusy(OverflowPolicy.BLOCK);
+
+    assertThat(snapshot.isKeyDown(HidKey.A)).isTrue();
+    assertThat(snapshot.isKeyUp(HidKey.A)).isFalse();
+  }
+
+  @Test
+  void testDropOldestDeliversKeyDown() throws InterruptedException {
+    AnalogKeySnapshot snapshot = fireKeyDownWhileBusy(OverflowPolicy.DROP_OLDEST);
+
+    assertThat(snapshot.isKeyDown(HidKey.A)).isTrue();
+    assertThat(snapshot.isKeyUp(HidKey.A)).isFalse();
+  }
+
+  @Test
+  void testCoalesceDeliversKeyDown() throws InterruptedException {
+    AnalogKeySnapshot snapshot = fireKeyDownWhileBusy(OverflowPolicy.COALESCE);
+
+    assertThat(snapshot.isKeyDown(HidKey.A)).isTrue();
+    assertThat(snapshot.isKeyUp(HidKey.A)).isFalse();
+  }
+
+  @Test
+  void testCoalesceDeliversKeyUpAfterMergedKeyDown() throws InterruptedException {
+    listener.blocker = new CountDownLatch(1);
+    listeners.add(
+        listener,
+        ListenerOptions.builder().overflowPolicy(OverflowPolicy.COALESCE).bufferSize(4).build());
+
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.C, 1.0f));
+    assertThat(listener.firstKeys.await(5, TimeUnit.SECONDS)).isTrue();
+    AnalogKeySnapshot snapshot = snapshot(HidKey.A, 1.0f);
+    snapshot.setActuated(HidKey.A.ordinal(), true);
+    listeners.fireKeysChanged(DEVICE, snapshot);
+    snapshot.clearChanges();
+    snapshot.set(HidKey.A.ordinal(), 0.0f);
+    snapshot.setActuated(HidKey.A.ordinal(), false);
+    listeners.fireKeysChanged(DEVICE, snapshot);
+    listeners.fireKeyboardClosed(DEVICE);
+    listener.blocker.countDown();
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.snapshots).hasSize(2);
+    AnalogKeySnapshot merged = listener.snapshots.get(1);
+    assertThat(merged.isKeyDown(HidKey.A)).isFalse();
+    assertThat(merged.isKeyUp(HidKey.A)).isTrue();
+  }
+
+  @Test
+  void testKeyFilterSkipsOtherKeys() throws InterruptedException {
+    listeners.add(listener, ListenerOptions.builder().keys(EnumSet.of(HidKey.W, HidKey.A)).build());
+
+    listeners.fireKeysChanged(DEVICE, snapshot(HidKey.B, 1.0f));
+    AnalogKeySnapshot both = snapshot(HidKey.B, 0.5f);
+    both.set(HidKey.W.ordinal(), 0.5f);
+    listeners.fireKeysChanged(DEVICE, both);
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.snapshots).hasSize(1);
+    AnalogKeySnapshot delivered = listener.snapshots.get(0);
+    assertThat(delivered.isChanged(HidKey.W)).isTrue();
+    assertThat(delivered.isChanged(HidKey.B)).isFalse();
+    assertThat(delivered.getValue(HidKey.B)).isEqualTo(0.5f);
+  }
+
+  @Test
+  void testDeviceFilterSkipsOtherDevices() {
+    AnalogKeyboardDevice other = mock(AnalogKeyboardDevice.class);
+    listeners.add(
+        listener,
+        ListenerOptions.builder()
+            .dispatchMode(DispatchMode.INLINE)
+            .keys(EnumSet.of(HidKey.A))
+            .deviceFilter(device -> device == DEVICE)
+            .build());
+
+    listeners.fireKeyboardAdded(other);
+    listeners.fireKeysChanged(other, snapshot(HidKey.A, 1.0f));
+    listeners.fireKeyboardAdded(DEVICE);
+    AnalogKeySnapshot both = snapshot(HidKey.A, 1.0f);
+    both.set(HidKey.B.ordinal(), 1.0f);
+    listeners.fireKeysChanged(DEVICE, both);
+
+    assertThat(listener.events).containsExactly("added", "keys").inOrder();
+    assertThat(listener.snapshots.get(0).isChanged(HidKey.B)).isFalse();
+    assertThat(both.isChanged(HidKey.B)).isTrue();
+  }
+
+  @Test
+  void testRemovedListenerReceivesNoEvents() throws InterruptedException {
+    RecordingListener other = new RecordingListener();
+    listeners.add(listener);
+    listeners.add(other);
+    listeners.remove(other);
+
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(other.closed.await(100, TimeUnit.MILLISECONDS)).isFalse();
+  }
+
+  @Test
+  void testInlineDeliversOnFiringThread() {
+    listeners.add(listener, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+
+    AnalogKeySnapshot snapshot = snapshot(HidKey.A, 1.0f);
+    listeners.fireKeysChanged(DEVICE, snapshot);
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(listener.events).containsExactly("keys", "closed").inOrder();
+    assertThat(listener.keysThread).isSameInstanceAs(Thread.currentThread());
+  }
+
+  @Test
+  void testFailingListenerIsCountedAndKeepsReceivingEvents() throws InterruptedException {
+    RecordingListener failing =
+        new RecordingListener() {
+          @Override
+          public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+            super.keysChanged(keyboard, snapshot);
+            throw new IllegalStateException("listener failed");
+          }
+        };
+    listeners.add(failing, ListenerOptions.builder().overflowPolicy(OverflowPolicy.BLOCK).build());
+
+    fireKeys(3);
+    listeners.fireKeyboardClosed(DEVICE);
+
+    assertThat(failing.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(failing.snapshots).hasSize(3);
+    assertThat(listeners.getMetrics().get(0).getFailures()).isEqualTo(3);
+    listeners.remove(failing);
+  }
+}
@@ -0,0 +1,155 @@
+package org.voegl.analogkey4j.event;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDeviceUtil;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardOptions;
+import org.voegl.analogkey4j.testing.LatchListener;
+import org.voegl.analogkey4j.testing.TestKeyboards;
+import org.voegl.analogkey4j.transport.SyntheticTransport;
+
+class HidServicesListenerImplTest {
+
+  private final HidServicesListenerImpl hidServicesListener = new HidServicesListenerImpl();
+
+  /** A listener recording added and removed keyboards. */
+  private static class LifecycleListener extends LatchListener {
+    final List<AnalogKeyboardDevice> added = Collections.synchronizedList(new ArrayList<>());
+    final List<AnalogKeyboardDevice> removed = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void keyboardAdded(AnalogKeyboardDevice keyboard) {
+      added.add(keyboard);
+    }
+
+    @Override
+    public void keyboardRemoved(AnalogKeyboardDevice keyboard) {
+      removed.add(keyboard);
+    }
+  }
+
+  private static SyntheticTransport wooting80he(String path) {
+    return TestKeyboards.wooting80he().path(path).generator((sequence, report) -> 0).build();
+  }
+
+  @Test
+  void testDevicesAreAttachedOncePerPath() {
+    LifecycleListener listener = new LifecycleListener();
+    hidServicesListener.addListener(
+        listener, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+
+    AnalogKeyboardDevice first = hidServicesListener.attach(wooting80he("a")).orElseThrow();
+    AnalogKeyboardDevice second = hidServicesListener.attach(wooting80he("a")).orElseThrow();
+
+    assertThat(second).isSameInstanceAs(first);
+    assertThat(listener.added).containsExactly(first);
+    assertThat(hidServicesListener.getKeyboardDevice("a")).hasValue(first);
+    assertThat(hidServicesListener.getKeyboardDevices()).containsExactly(first);
+  }
+
+  @Test
+  void testStopRemovesAllDevices() {
+    LifecycleListener listener = new LifecycleListener();
+    hidServicesListener.addListener(
+        listener, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+    for (int i = 0; i < 16; i++) {
+      AnalogKeyboardDevice keyboard =
+          hidServicesListener.attach(wooting80he("device-" + i)).orElseThrow();
+      if (i % 2 == 0) {
+        keyboard.open();
+      }
+    }
+
+    hidServicesListener.stop();
+
+    assertThat(listener.removed).hasSize(16);
+    assertThat(hidServicesListener.getKeyboardDevices()).isEmpty();
+    assertThat(listener.removed.stream().allMatch(AnalogKeyboardDevice::isClosed)).isTrue();
+  }
+
+  @Test
+  void testOpenAllOpensClosedDevices() throws Exception {
+    AnalogKeyboardDevice open = hidServicesListener.attach(wooting80he("open")).orElseThrow();
+    open.open();
+    List<AnalogKeyboardDevice> closed = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      closed.add(hidServicesListener.attach(wooting80he("closed-" + i)).orElseThrow());
+    }
+
+    Set<AnalogKeyboardDevice> opened = hidServicesListener.openAll().get(5, TimeUnit.SECONDS);
+
+    assertThat(opened).containsExactlyElementsIn(closed);
+    assertThat(
+            hidServicesListener.getKeyboardDevices().stream()
+                .noneMatch(AnalogKeyboardDevice::isClosed))
+        .isTrue();
+    hidServicesListener.stop();
+  }
+
+  @Test
+  void testSupportedDevicesAreIndexed() {
+    assertThat(AnalogKeyboardDeviceUtil.isSupported(0x31e3, 0x1402, 0xffffff54)).isTrue();
+    assertThat(AnalogKeyboardDeviceUtil.isSupported(0x31e3, 0x1402, 0x0001)).isFalse();
+    assertThat(AnalogKeyboardDeviceUtil.isSupported(0x046d, 0x1402, 0xffffff54)).isFalse();
+  }
+
+  @Test
+  void testCloseCompletesOnceClosed() throws Exception {
+    AnalogKeyboardDevice keyboard = hidServicesListener.attach(wooting80he("a")).orElseThrow();
+    assertThat(keyboard.onClosed().isDone()).isTrue();
+    keyboard.open();
+    assertThat(keyboard.onClosed().isDone()).isFalse();
+
+    keyboard.close().get(1, TimeUnit.SECONDS);
+
+    assertThat(keyboard.isClosed()).isTrue();
+  }
+
+  @Test
+  void testStopReportsDevicesMissingTheCloseTimeout() throws InterruptedException {
+    HidServicesListenerImpl impatient =
+        new HidServicesListenerImpl(
+            AnalogKeyboardOptions.builder().closeTimeout(Duration.ofMillis(50)).build());
+    List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch reading = new CountDownLatch(1);
+    impatient.addListener(
+        new LifecycleListener() {
+          @Override
+          public void keyboardError(AnalogKeyboardDevice keyboard, String message) {
+            errors.add(message);
+          }
+        },
+        ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+    SyntheticTransport stuck =
+        TestKeyboards.wooting80he()
+            .generator(
+                (sequence, report) -> {
+                  reading.countDown();
+                  try {
+                    // ignores the close like a read stuck in a driver
+                    Thread.sleep(500);
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                  return 0;
+                })
+            .build();
+    impatient.attach(stuck).orElseThrow().open();
+    assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+    long start = System.nanoTime();
+    impatient.stop();
+
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(400));
+    assertThat(errors).containsExactly("Keyboard did not close within PT0.05S");
+  }
+}
@@ -0,0 +1,124 @@
+package org.voegl.analogkey4j.event;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+
+class MergedKeyboardViewTest {
+
+  private static final AnalogKeyboardDevice FIRST = mock(AnalogKeyboardDevice.class);
+  private static final AnalogKeyboardDevice SECOND = mock(AnalogKeyboardDevice.class);
+  private final HidServicesListenerImpl hidServicesListener = new HidServicesListenerImpl();
+  private MergedKeyboardView view;
+
+  /** A listener recording the merged values of key A. */
+  private static class MergedListener implements AnalogKeyboardListener {
+    final List<Float> values = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+      if (snapshot.isChanged(HidKey.A)) {
+        values.add(snapshot.getValue(HidKey.A));
+      }
+    }
+
+    @Override
+    public void keyPressed(AnalogKeyboardDevice keyboard, Set<AnalogKeyState> keyStates) {}
+
+    @Override
+    public void keyboardAdded(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardRemoved(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardOpened(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardClosed(AnalogKeyboardDevice keyboard) {}
+
+    @Override
+    public void keyboardError(AnalogKeyboardDevice keyboard, String message) {}
+  }
+
+  @AfterEach
+  void tearDown() {
+    view.close();
+  }
+
+  private void fire(AnalogKeyboardDevice keyboard, HidKey key, float value) {
+    AnalogKeySnapshot snapshot = new AnalogKeySnapshot();
+    snapshot.set(key.ordinal(), value);
+    view.keysChanged(keyboard, snapshot);
+  }
+
+  @Test
+  void testMaxAcrossKeyboards() {
+    view = hidServicesListener.createMergedView(MergeMode.MAX);
+    MergedListener listener = new MergedListener();
+    view.addListener(listener, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+
+    fire(FIRST, HidKey.A, 0.5f);
+    fire(SECOND, HidKey.A, 0.3f);
+    assertThat(view.getValue(HidKey.A)).isEqualTo(0.5f);
+    fire(FIRST, HidKey.A, 0.0f);
+    assertThat(view.getValue(HidKey.A)).isEqualTo(0.3f);
+    view.keyboardClosed(SECOND);
+
+    assertThat(view.getValue(HidKey.A)).isEqualTo(0.0f);
+    assertThat(listener.values).containsExactly(0.5f, 0.3f, 0.0f).inOrder();
+  }
+
+  @Test
+  void testLastWriterWins() {
+    view = hidServicesListener.createMergedView(MergeMode.LAST_WRITER);
+
+    fire(FIRST, HidKey.A, 0.5f);
+    fire(SECOND, HidKey.A, 0.3f);
+
+    float[] values = new float[AnalogKeySnapshot.KEY_COUNT];
+    view.readAll(values);
+    assertThat(values[HidKey.A.ordinal()]).isEqualTo(0.3f);
+  }
+
+  @Test
+  void testConcurrentReadersSettleOnMax() throws InterruptedException {
+    view = hidServicesListener.createMergedView(MergeMode.MAX);
+    List<Thread> readers = new ArrayList<>();
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < 4; t++) {
+      AnalogKeyboardDevice keyboard = mock(AnalogKeyboardDevice.class);
+      float last = (t + 1) / 10.0f;
+      Thread reader =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                  fire(keyboard, HidKey.A, (i % 100) / 100.0f);
+                }
+                fire(keyboard, HidKey.A, last);
+              });
+      reader.start();
+      readers.add(reader);
+    }
+    start.countDown();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertThat(view.getValue(HidKey.A)).isEqualTo(0.4f);
+  }
+}
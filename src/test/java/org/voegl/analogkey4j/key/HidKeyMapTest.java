@@ -0,0 +1,54 @@
+package org.voegl.analogkey4j.key;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class HidKeyMapTest {
+
+  private static final HidKeyMap KEY_MAP = HidKeyMap.getInstance();
+
+  private static class CustomKeyMap extends HidKeyMap {
+    CustomKeyMap() {
+      putKey(HidKey.A, 0xF0);
+      putKey(HidKey.B, 0xe4);
+    }
+  }
+
+  @Test
+  void testGetKey() {
+    assertThat(KEY_MAP.getKey((byte) 0x04)).isEqualTo(HidKey.A);
+    assertThat(KEY_MAP.getKey((byte) 0xe7)).isEqualTo(HidKey.RightMeta);
+  }
+
+  @Test
+  void testGetUnknownKey() {
+    assertThat(KEY_MAP.getKey((byte) 0x00)).isNull();
+    assertThat(KEY_MAP.getKey((byte) 0xFF)).isNull();
+  }
+
+  @Test
+  void testGetCode() {
+    assertThat(KEY_MAP.getCode(HidKey.A)).isEqualTo(0x04);
+    assertThat(KEY_MAP.getCode(HidKey.RightMeta)).isEqualTo(0xe7);
+  }
+
+  @Test
+  void testPutKeyInSubclass() {
+    HidKeyMap keyMap = new CustomKeyMap();
+
+    assertThat(keyMap.getKey((byte) 0xF0)).isEqualTo(HidKey.A);
+    assertThat(keyMap.getKey((byte) 0x04)).isEqualTo(HidKey.A);
+    assertThat(keyMap.getCode(HidKey.A)).isEqualTo(0xF0);
+    assertThat(keyMap.getKey((byte) 0xe4)).isEqualTo(HidKey.B);
+    assertThat(keyMap.getCode(HidKey.RightCtrl)).isEqualTo(HidKeyMap.NO_CODE);
+  }
+
+  @Test
+  void testSubclassDoesNotChangeInstance() {
+    new CustomKeyMap();
+
+    assertThat(KEY_MAP.getKey((byte) 0xe4)).isEqualTo(HidKey.RightCtrl);
+    assertThat(KEY_MAP.getCode(HidKey.A)).isEqualTo(0x04);
+  }
+}
@@ -0,0 +1,47 @@
+package org.voegl.analogkey4j.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testBucketsCoverAllValues() {
+    for (long value : new long[] {0, 7, 8, 15, 16, 1000, 123_456_789, Long.MAX_VALUE}) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertThat(bucket).isLessThan(LatencyHistogram.BUCKET_COUNT);
+      assertThat(LatencyHistogram.highestValueOf(bucket)).isAtLeast(value);
+      if (bucket > 0) {
+        assertThat(LatencyHistogram.highestValueOf(bucket - 1)).isLessThan(value);
+      }
+    }
+  }
+
+  @Test
+  void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    assertThat(snapshot.getCount()).isEqualTo(1000);
+    assertThat(snapshot.getMax()).isEqualTo(1_000_000);
+    assertThat(snapshot.getMean()).isWithin(1e-6).of(500_500.0);
+    assertThat((double) snapshot.getP50()).isWithin(500_000 * 0.125).of(500_000);
+    assertThat((double) snapshot.getP99()).isWithin(990_000 * 0.125).of(990_000);
+    assertThat(snapshot.getValueAtPercentile(100.0)).isEqualTo(1_000_000);
+  }
+
+  @Test
+  void testEmptyAndInvalid() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+    assertThat(snapshot.getP999()).isEqualTo(0);
+    assertThat(snapshot.getMean()).isEqualTo(0.0);
+    assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101.0));
+  }
+}
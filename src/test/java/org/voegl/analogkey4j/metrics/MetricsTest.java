@@ -0,0 +1,60 @@
+package org.voegl.analogkey4j.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.AnalogKeyboardManager;
+import org.voegl.analogkey4j.event.DispatchMode;
+import org.voegl.analogkey4j.event.ListenerOptions;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+import org.voegl.analogkey4j.testing.LatchListener;
+import org.voegl.analogkey4j.testing.TestKeyboards;
+import org.voegl.analogkey4j.transport.SyntheticTransport;
+
+class MetricsTest {
+
+  @Test
+  void testReadsAndDeliveriesAreMeasured() throws Exception {
+    AnalogKeyboardManager manager = new AnalogKeyboardManager();
+    LatchListener listener = new LatchListener(20, 1);
+    // inline delivery records every delivery before the event is fired to the next listener
+    manager.addListener(
+        listener, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+    SyntheticTransport transport =
+        TestKeyboards.wooting80he()
+            .path("synthetic")
+            .reportsPerSecond(1000)
+            .generator(
+                SyntheticTransport.ReportGenerator.cycling(
+                    new byte[] {0x00, 0x1a, (byte) 0xFF}, new byte[] {0x00, 0x1a, 0x10}))
+            .build();
+    AnalogKeyboardDevice keyboard = manager.attach(transport).orElseThrow();
+    keyboard.open();
+    assertThat(listener.keys.await(5, TimeUnit.SECONDS)).isTrue();
+
+    ObjectName name = manager.registerMetricsMBean();
+    CompositeData exposed =
+        (CompositeData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Metrics");
+    assertThat(((CompositeData[]) exposed.get("devices"))[0].get("path")).isEqualTo("synthetic");
+
+    // the metrics only stop changing once the keyboard is no longer read
+    manager.detach(keyboard);
+    keyboard.onClosed().get(5, TimeUnit.SECONDS);
+
+    DeviceMetrics.Snapshot device = keyboard.getMetrics().snapshot("synthetic");
+    assertThat(device.getPath()).isEqualTo("synthetic");
+    assertThat(device.getReports()).isAtLeast(20);
+    assertThat(device.getReadErrors()).isEqualTo(0);
+    assertThat(device.getParseNanos().getCount()).isEqualTo(device.getReports());
+    ListenerMetrics.Snapshot delivery = manager.getMetrics().getListeners().get(0);
+    assertThat(delivery.getEvents()).isAtLeast(20);
+    assertThat(delivery.getCallbackNanos().getCount()).isEqualTo(delivery.getEvents());
+
+    manager.stop();
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+  }
+}
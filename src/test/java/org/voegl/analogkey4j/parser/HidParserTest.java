@@ -6,7 +6,9 @@ import java.util.Collections;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
 import org.voegl.analogkey4j.event.AnalogKeyState;
+import org.voegl.analogkey4j.key.HidKey;
 import org.voegl.analogkey4j.key.HidKeyMap;
 
 class HidParserTest {
@@ -66,10 +68,9 @@ class HidParserTest {
     int[] hidMessageInt = {0x00, 0x17, 0xFF, 0x00, 0xe4, 0x00};
     byte[] hidMessage = hexToBytes(hidMessageInt);
 
+    // the second key has not moved from its initial value
     Set<AnalogKeyState> expectedStates =
-        Set.of(
-            new AnalogKeyState(KEY_MAP.getKey((byte) 0x17), 1.0f),
-            new AnalogKeyState(KEY_MAP.getKey((byte) 0xe4), 0.0f));
+        Set.of(new AnalogKeyState(KEY_MAP.getKey((byte) 0x17), 1.0f));
 
     assertThat(parser.parse(hidMessage, 6)).isEqualTo(expectedStates);
   }
@@ -83,4 +84,76 @@ class HidParserTest {
 
     assertThat(parser.parse(hidMessage, 3)).isEqualTo(expectedStates);
   }
+
+  @Test
+  void testParseReleasedKeyHid() {
+    byte[] pressedMessage = hexToBytes(new int[] {0x00, 0x04, 0x80, 0x00, 0x05, 0xFF});
+    byte[] releasedMessage = hexToBytes(new int[] {0x00, 0x05, 0xFF});
+    parser.parse(pressedMessage, 6);
+
+    Set<AnalogKeyState> expectedStates = Set.of(new AnalogKeyState(HidKey.A, 0.0f));
+
+    assertThat(parser.parse(releasedMessage, 3)).isEqualTo(expectedStates);
+  }
+
+  @Test
+  void testParseSnapshotHid() {
+    byte[] pressedMessage = hexToBytes(new int[] {0x00, 0x04, 0x33, 0x00, 0x1a, 0xFF});
+    byte[] releasedMessage = hexToBytes(new int[] {0x00, 0x1a, 0xFF});
+    parser.parseSnapshot(pressedMessage, 6);
+
+    AnalogKeySnapshot snapshot = parser.parseSnapshot(releasedMessage, 3);
+
+    assertThat(snapshot.getChangedCount()).isEqualTo(1);
+    assertThat(snapshot.isChanged(HidKey.A)).isTrue();
+    assertThat(snapshot.isChanged(HidKey.W)).isFalse();
+    assertThat(snapshot.getValue(HidKey.A)).isEqualTo(0.0f);
+    assertThat(snapshot.getValue(HidKey.W)).isEqualTo(1.0f);
+    assertThat(snapshot.nextChanged(0)).isEqualTo(HidKey.A.ordinal());
+    assertThat(snapshot.nextChanged(HidKey.A.ordinal() + 1)).isEqualTo(-1);
+  }
+
+  @Test
+  void testParseSnapshotReusesInstance() {
+    byte[] hidMessage = hexToBytes(new int[] {0x00, 0x04, 0xFF});
+
+    assertThat(parser.parseSnapshot(hidMessage, 3))
+        .isSameInstanceAs(parser.parseSnapshot(hidMessage, 3));
+  }
+
+  @Test
+  void testParseHeldKeyHid() {
+    byte[] hidMessage = hexToBytes(new int[] {0x00, 0x04, 0x80});
+    parser.parse(hidMessage, 3);
+
+    assertThat(parser.parse(hidMessage, 3)).isEmpty();
+  }
+
+  @Test
+  void testParseChangeEpsilonHid() {
+    parser.setChangeEpsilon(0.05f);
+    parser.parseSnapshot(hexToBytes(new int[] {0x00, 0x04, 0x80}), 3);
+
+    // moves of 4/255 are below the epsilon, but add up to more than it
+    assertThat(parser.parseSnapshot(hexToBytes(new int[] {0x00, 0x04, 0x84}), 3).hasChanges())
+        .isFalse();
+    assertThat(parser.parseSnapshot(hexToBytes(new int[] {0x00, 0x04, 0x88}), 3).hasChanges())
+        .isFalse();
+    AnalogKeySnapshot snapshot = parser.parseSnapshot(hexToBytes(new int[] {0x00, 0x04, 0x8E}), 3);
+    assertThat(snapshot.isChanged(HidKey.A)).isTrue();
+    assertThat(snapshot.getValue(HidKey.A)).isEqualTo(0x8E / 255.0f);
+  }
+
+  @Test
+  void testParseChangeEpsilonReportsReleaseHid() {
+    parser.setChangeEpsilon(0.05f);
+    parser.parseSnapshot(hexToBytes(new int[] {0x00, 0x04, 0x20, 0x00, 0x05, 0x20}), 6);
+    parser.parseSnapshot(hexToBytes(new int[] {0x00, 0x04, 0x02, 0x00, 0x05, 0x20}), 6);
+
+    AnalogKeySnapshot snapshot = parser.parseSnapshot(hexToBytes(new int[] {0x00, 0x04, 0x00}), 3);
+
+    assertThat(snapshot.getChangedCount()).isEqualTo(2);
+    assertThat(snapshot.getValue(HidKey.A)).isEqualTo(0.0f);
+    assertThat(snapshot.getValue(HidKey.B)).isEqualTo(0.0f);
+  }
 }
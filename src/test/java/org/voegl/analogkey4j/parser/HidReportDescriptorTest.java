@@ -0,0 +1,81 @@
+package org.voegl.analogkey4j.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class HidReportDescriptorTest {
+
+  private static byte[] toBytes(int[] values) {
+    byte[] result = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = (byte) values[i];
+    }
+    return result;
+  }
+
+  @Test
+  void testInputReportWithoutReportId() {
+    byte[] descriptor =
+        toBytes(
+            new int[] {
+              0x06,
+              0x54,
+              0xFF, // usage page (vendor defined)
+              0x09,
+              0x01, // usage
+              0xA1,
+              0x01, // collection (application)
+              0x15,
+              0x00, // logical minimum
+              0x26,
+              0xFF,
+              0x00, // logical maximum
+              0x75,
+              0x08, // report size (8)
+              0x95,
+              0x30, // report count (48)
+              0x09,
+              0x01, // usage
+              0x81,
+              0x02, // input
+              0x95,
+              0x08, // report count (8)
+              0x91,
+              0x02, // output
+              0xC0 // end collection
+            });
+
+    assertThat(HidReportDescriptor.getMaxInputReportLength(descriptor, descriptor.length))
+        .isEqualTo(48);
+  }
+
+  @Test
+  void testLargestInputReportWithReportIds() {
+    byte[] descriptor =
+        toBytes(
+            new int[] {
+              0x75, 0x08, // report size (8)
+              0x85, 0x01, // report id (1)
+              0x95, 0x20, // report count (32)
+              0x81, 0x02, // input
+              0x85, 0x02, // report id (2)
+              0x95, 0x3F, // report count (63)
+              0x81, 0x02, // input
+              0x75, 0x01, // report size (1)
+              0x95, 0x04, // report count (4)
+              0x81, 0x02 // input
+            });
+
+    assertThat(HidReportDescriptor.getMaxInputReportLength(descriptor, descriptor.length))
+        .isEqualTo(65);
+  }
+
+  @Test
+  void testDescriptorWithoutInputReport() {
+    byte[] descriptor = toBytes(new int[] {0x75, 0x08, 0x95, 0x40, 0x91, 0x02});
+
+    assertThat(HidReportDescriptor.getMaxInputReportLength(descriptor, descriptor.length))
+        .isEqualTo(0);
+  }
+}
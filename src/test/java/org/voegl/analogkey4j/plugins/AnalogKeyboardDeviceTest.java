@@ -0,0 +1,39 @@
+package org.voegl.analogkey4j.plugins;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
+import org.voegl.analogkey4j.transport.HidTransport;
+
+class AnalogKeyboardDeviceTest {
+
+  private final AnalogKeyboardListenerList listeners = mock(AnalogKeyboardListenerList.class);
+
+  @Test
+  void testFailedOpenClosesTransport() {
+    HidTransport transport = mock(HidTransport.class);
+    when(transport.open()).thenReturn(true);
+    AnalogKeyboardDevice keyboard =
+        new AnalogKeyboardDevice(
+            transport,
+            () -> {
+              throw new IllegalStateException("No parser");
+            },
+            listeners) {
+          @Override
+          public boolean isResponsible() {
+            return true;
+          }
+        };
+
+    assertThrows(IllegalStateException.class, keyboard::open);
+
+    verify(transport).close();
+    assertThat(keyboard.isClosed()).isTrue();
+  }
+}
@@ -0,0 +1,49 @@
+package org.voegl.analogkey4j.plugins;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.event.AnalogKeyboardListenerList;
+import org.voegl.analogkey4j.plugins.wooting.WootingDevice;
+import org.voegl.analogkey4j.transport.SyntheticTransport;
+
+class AnalogKeyboardDeviceUtilTest {
+
+  private final AnalogKeyboardListenerList listeners = mock(AnalogKeyboardListenerList.class);
+
+  private static SyntheticTransport transport(int vendorId, int productId) {
+    return SyntheticTransport.builder()
+        .vendorId(vendorId)
+        .productId(productId)
+        .usagePage(0xffffff54)
+        .reportSize(64)
+        .generator((sequence, report) -> 0)
+        .build();
+  }
+
+  @Test
+  void testBundledPluginIsDiscovered() {
+    assertThat(
+            AnalogKeyboardDeviceUtil.getAvailablePlugin(transport(0x31e3, 0x1402), listeners)
+                .orElseThrow())
+        .isInstanceOf(WootingDevice.class);
+  }
+
+  @Test
+  void testServiceProviderPluginIsDiscovered() {
+    AnalogKeyboardDevice keyboard =
+        AnalogKeyboardDeviceUtil.getAvailablePlugin(transport(0x1209, 0x0001), listeners)
+            .orElseThrow();
+
+    assertThat(keyboard).isInstanceOf(PluginDevice.class);
+    assertThat(keyboard.getDeclaredReportSize()).isEqualTo(32);
+  }
+
+  @Test
+  void testUnsupportedDeviceHasNoPlugin() {
+    assertThat(AnalogKeyboardDeviceUtil.isSupported(0x1209, 0x0002, 0xffffff54)).isFalse();
+    assertThat(AnalogKeyboardDeviceUtil.getAvailablePlugin(transport(0x1209, 0x0002), listeners))
+        .isEmpty();
+  }
+}
@@ -0,0 +1,109 @@
+package org.voegl.analogkey4j.plugins;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.AnalogKeyboardManager;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.event.DispatchMode;
+import org.voegl.analogkey4j.event.ListenerOptions;
+import org.voegl.analogkey4j.testing.LatchListener;
+import org.voegl.analogkey4j.testing.TestKeyboards;
+import org.voegl.analogkey4j.transport.SyntheticTransport;
+
+class ReaderModeTest {
+
+  private static final int KEYBOARD_COUNT = 4;
+
+  private AnalogKeyboardManager manager;
+
+  /** A listener recording the keyboards that reported keys and counting closed keyboards. */
+  private static class KeyboardListener extends LatchListener {
+    final Set<AnalogKeyboardDevice> reported = ConcurrentHashMap.newKeySet();
+    volatile String readerThread;
+
+    KeyboardListener() {
+      super(KEYBOARD_COUNT, KEYBOARD_COUNT);
+    }
+
+    @Override
+    public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+      readerThread = Thread.currentThread().getName();
+      if (reported.add(keyboard)) {
+        super.keysChanged(keyboard, snapshot);
+      }
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (manager != null) {
+      manager.stop();
+    }
+  }
+
+  private static KeyboardListener readKeyboards(AnalogKeyboardManager manager)
+      throws InterruptedException {
+    KeyboardListener listener = new KeyboardListener();
+    manager.addListener(
+        listener, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+    List<AnalogKeyboardDevice> keyboards = new ArrayList<>();
+    for (int i = 0; i < KEYBOARD_COUNT; i++) {
+      SyntheticTransport transport =
+          TestKeyboards.wooting80he()
+              .reportsPerSecond(1000)
+              .generator(
+                  SyntheticTransport.ReportGenerator.cycling(
+                      new byte[] {0x00, 0x1a, (byte) 0xFF}, new byte[] {0x00, 0x1a, 0x10}))
+              .build();
+      AnalogKeyboardDevice keyboard = manager.attach(transport).orElseThrow();
+      keyboard.open();
+      keyboards.add(keyboard);
+    }
+
+    assertThat(listener.keys.await(5, TimeUnit.SECONDS)).isTrue();
+    for (AnalogKeyboardDevice keyboard : keyboards) {
+      manager.detach(keyboard);
+    }
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    return listener;
+  }
+
+  @Test
+  void testSharedPoolReadsAllKeyboards() throws InterruptedException {
+    manager =
+        new AnalogKeyboardManager(
+            AnalogKeyboardOptions.builder()
+                .readerMode(ReaderMode.SHARED_POOL)
+                .readerPoolSize(1)
+                .build());
+
+    KeyboardListener listener = readKeyboards(manager);
+
+    assertThat(listener.readerThread).isEqualTo("analog keyboard reader 1");
+  }
+
+  @Test
+  void testVirtualThreadsReadAllKeyboardsIfSupported() throws InterruptedException {
+    if (!VirtualThreads.isSupported()) {
+      assertThrows(
+          UnsupportedOperationException.class,
+          () -> AnalogKeyboardOptions.builder().readerMode(ReaderMode.VIRTUAL_THREAD).build());
+      return;
+    }
+    manager =
+        new AnalogKeyboardManager(
+            AnalogKeyboardOptions.builder().readerMode(ReaderMode.VIRTUAL_THREAD).build());
+
+    KeyboardListener listener = readKeyboards(manager);
+
+    assertThat(listener.readerThread).isEqualTo("analog keyboard reader");
+  }
+}
@@ -0,0 +1,23 @@
+package org.voegl.analogkey4j.plugins;
+
+import java.util.Set;
+import java.util.function.Supplier;
+import org.voegl.analogkey4j.key.HidKeyMap;
+import org.voegl.analogkey4j.parser.HidParser;
+
+/** A plugin discovered from the test class path, supporting a keyboard that does not exist. */
+public class SyntheticPlugin implements AnalogKeyboardPlugin {
+
+  static final SimpleAnalogKeyboard KEYBOARD =
+      new SimpleAnalogKeyboard("Synthetic Keyboard", 0x1209, 0x0001, 0xffffff54, 32);
+
+  @Override
+  public Set<SimpleAnalogKeyboard> getKeyboards() {
+    return Set.of(KEYBOARD);
+  }
+
+  @Override
+  public Supplier<HidParser> getParserFactory() {
+    return () -> new HidParser(HidKeyMap.getInstance());
+  }
+}
@@ -0,0 +1,148 @@
+package org.voegl.analogkey4j.processing;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.key.HidKey;
+
+class KeyProcessorTest {
+
+  private final AnalogKeySnapshot parsed = new AnalogKeySnapshot();
+
+  private AnalogKeySnapshot process(KeyProcessor processor, HidKey key, int raw) {
+    parsed.clearChanges();
+    parsed.set(key.ordinal(), raw / 255.0f);
+    return processor.process(parsed);
+  }
+
+  @Test
+  void testDeadzones() {
+    KeyProcessor processor =
+        new KeyProcessor(
+            KeyProfiles.builder()
+                .defaultProfile(
+                    KeyProfile.builder().innerDeadzone(0.2f).outerDeadzone(0.2f).build())
+                .build());
+
+    assertThat(process(processor, HidKey.A, 51).hasChanges()).isFalse();
+    assertThat(process(processor, HidKey.A, 204).getValue(HidKey.A)).isEqualTo(1.0f);
+    assertThat(process(processor, HidKey.A, 128).getValue(HidKey.A))
+        .isWithin(0.01f)
+        .of((128 / 255.0f - 0.2f) / 0.6f);
+    assertThat(process(processor, HidKey.A, 10).getValue(HidKey.A)).isEqualTo(0.0f);
+  }
+
+  @Test
+  void testCurves() {
+    KeyProcessor processor =
+        new KeyProcessor(
+            KeyProfiles.builder()
+                .profile(
+                    HidKey.A, KeyProfile.builder().curve(ResponseCurve.exponential(2.0f)).build())
+                .profile(
+                    HidKey.B,
+                    KeyProfile.builder()
+                        .curve(ResponseCurve.points(0, 0, 0.5f, 0.1f, 1, 1))
+                        .build())
+                .build());
+
+    assertThat(process(processor, HidKey.A, 51).getValue(HidKey.A)).isWithin(1e-6f).of(0.04f);
+    assertThat(process(processor, HidKey.B, 51).getValue(HidKey.B)).isWithin(1e-6f).of(0.04f);
+    assertThat(process(processor, HidKey.B, 204).getValue(HidKey.B)).isWithin(1e-6f).of(0.64f);
+    assertThat(process(processor, HidKey.C, 51).getValue(HidKey.C)).isWithin(1e-6f).of(0.2f);
+  }
+
+  @Test
+  void testHysteresis() {
+    KeyProcessor processor =
+        new KeyProcessor(
+            KeyProfiles.builder()
+                .defaultProfile(KeyProfile.builder().actuationPoint(0.5f).hysteresis(0.1f).build())
+                .build());
+
+    assertThat(process(processor, HidKey.A, 120).isActuated(HidKey.A)).isFalse();
+    assertThat(process(processor, HidKey.A, 128).isActuated(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 110).isActuated(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 120).isActuated(HidKey.A)).isTrue();
+    AnalogKeySnapshot released = process(processor, HidKey.A, 100);
+    assertThat(released.isActuated(HidKey.A)).isFalse();
+    assertThat(released.isChanged(HidKey.A)).isTrue();
+  }
+
+  @Test
+  void testRapidTrigger() {
+    KeyProcessor processor =
+        new KeyProcessor(
+            KeyProfiles.builder()
+                .defaultProfile(
+                    KeyProfile.builder()
+                        .actuationMode(ActuationMode.RAPID_TRIGGER)
+                        .actuationPoint(0.4f)
+                        .pressSensitivity(0.1f)
+                        .releaseSensitivity(0.05f)
+                        .build())
+                .build());
+
+    assertThat(process(processor, HidKey.A, 90).isActuated(HidKey.A)).isFalse();
+    assertThat(process(processor, HidKey.A, 102).isKeyDown(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 200).isActuated(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 190).isActuated(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 185).isKeyUp(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 170).isActuated(HidKey.A)).isFalse();
+    assertThat(process(processor, HidKey.A, 190).isActuated(HidKey.A)).isFalse();
+    assertThat(process(processor, HidKey.A, 196).isKeyDown(HidKey.A)).isTrue();
+    // below the actuation point, rapid trigger is no longer active
+    assertThat(process(processor, HidKey.A, 90).isKeyUp(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 100).isActuated(HidKey.A)).isFalse();
+  }
+
+  @Test
+  void testContinuousRapidTrigger() {
+    KeyProcessor processor =
+        new KeyProcessor(
+            KeyProfiles.builder()
+                .defaultProfile(
+                    KeyProfile.builder()
+                        .actuationMode(ActuationMode.CONTINUOUS_RAPID_TRIGGER)
+                        .actuationPoint(0.4f)
+                        .pressSensitivity(0.1f)
+                        .build())
+                .build());
+
+    assertThat(process(processor, HidKey.A, 102).isKeyDown(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 50).isKeyUp(HidKey.A)).isTrue();
+    // rapid trigger stays active below the actuation point until the key is fully released
+    assertThat(process(processor, HidKey.A, 80).isKeyDown(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 0).isKeyUp(HidKey.A)).isTrue();
+    assertThat(process(processor, HidKey.A, 80).isActuated(HidKey.A)).isFalse();
+  }
+
+  @Test
+  void testKeysShareCompiledProfiles() {
+    KeyProfiles profiles =
+        KeyProfiles.builder()
+            .profile(HidKey.A, KeyProfile.builder().hysteresis(0.1f).build())
+            .build();
+
+    assertThat(profiles.values[HidKey.B.ordinal()])
+        .isSameInstanceAs(profiles.values[HidKey.C.ordinal()]);
+    assertThat(profiles.values[HidKey.A.ordinal()])
+        .isNotSameInstanceAs(profiles.values[HidKey.B.ordinal()]);
+    assertThat(profiles.getProfile(HidKey.B)).isSameInstanceAs(KeyProfile.DEFAULT);
+  }
+
+  @Test
+  void testInvalidProfilesAreRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> KeyProfile.builder().innerDeadzone(0.5f).outerDeadzone(0.5f).build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> KeyProfile.builder().actuationPoint(0.2f).hysteresis(0.3f).build());
+    assertThrows(IllegalArgumentException.class, () -> ResponseCurve.points(0, 0, 0, 1));
+    assertThrows(
+        IllegalArgumentException.class, () -> KeyProfile.builder().pressSensitivity(0.0f).build());
+  }
+}
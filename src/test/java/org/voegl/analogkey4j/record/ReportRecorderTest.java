@@ -0,0 +1,173 @@
+package org.voegl.analogkey4j.record;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.voegl.analogkey4j.AnalogKeyboardManager;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.event.DispatchMode;
+import org.voegl.analogkey4j.event.ListenerOptions;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+import org.voegl.analogkey4j.testing.LatchListener;
+import org.voegl.analogkey4j.testing.TestKeyboards;
+import org.voegl.analogkey4j.transport.SyntheticTransport;
+
+class ReportRecorderTest {
+
+  private static final byte[] W_PRESSED = {0x00, 0x1a, (byte) 0xFF};
+  private static final byte[] W_HALF = {0x00, 0x1a, (byte) 0x80};
+
+  @TempDir Path dir;
+
+  private static SyntheticTransport.SyntheticTransportBuilder wooting80he() {
+    return TestKeyboards.wooting80he()
+        .serialNumber("serial")
+        .generator(SyntheticTransport.ReportGenerator.cycling(W_PRESSED, W_HALF));
+  }
+
+  /** A listener counting the changes of the W key until the keyboard is closed. */
+  private static class CountingListener extends LatchListener {
+    volatile float value;
+
+    CountingListener(int count) {
+      super(count, 1);
+    }
+
+    @Override
+    public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+      if (snapshot.isChanged(HidKey.W)) {
+        value = snapshot.getValue(HidKey.W);
+        super.keysChanged(keyboard, snapshot);
+      }
+    }
+  }
+
+  @Test
+  void testRecordingSpansChunks() throws IOException {
+    Path file = dir.resolve("chunks.rec");
+    SyntheticTransport first = wooting80he().build();
+    SyntheticTransport second = wooting80he().serialNumber(null).build();
+    byte[] report = new byte[1024];
+
+    try (ReportRecorder recorder = new ReportRecorder(file, 1 << 17)) {
+      ReportRecorder.Track firstTrack = recorder.addDevice(first);
+      ReportRecorder.Track secondTrack = recorder.addDevice(second);
+      for (int i = 0; i < 500; i++) {
+        report[0] = (byte) i;
+        firstTrack.record(report, report.length);
+        secondTrack.record(report, 10);
+      }
+    }
+
+    ReportRecording recording = ReportRecording.open(file);
+    assertThat(recording.getReportCount()).isEqualTo(1000);
+    List<ReplayTransport> transports = recording.createTransports(false);
+    assertThat(transports).hasSize(2);
+    assertThat(transports.get(0).getPath()).isEqualTo("replay:" + first.getPath());
+    assertThat(transports.get(0).getSerialNumber()).isEqualTo("serial");
+    assertThat(transports.get(1).getSerialNumber()).isNull();
+
+    ReplayTransport replay = transports.get(0);
+    byte[] data = new byte[2048];
+    replay.open();
+    for (int i = 0; i < 500; i++) {
+      assertThat(replay.read(data, 0)).isEqualTo(1024);
+      assertThat(data[0]).isEqualTo((byte) i);
+    }
+    assertThat(replay.read(data, 0)).isEqualTo(0);
+    assertThat(replay.isFinished()).isTrue();
+  }
+
+  @Test
+  void testTracksRecordConcurrently() throws IOException, InterruptedException {
+    Path file = dir.resolve("concurrent.rec");
+    int reports = 2000;
+    List<Thread> threads = new ArrayList<>();
+
+    try (ReportRecorder recorder = new ReportRecorder(file, 1 << 17)) {
+      for (int t = 0; t < 4; t++) {
+        ReportRecorder.Track track = recorder.addDevice(wooting80he().build());
+        Thread thread =
+            new Thread(
+                () -> {
+                  byte[] report = new byte[64];
+                  for (int i = 0; i < reports; i++) {
+                    report[0] = (byte) i;
+                    track.record(report, report.length);
+                  }
+                });
+        thread.start();
+        threads.add(thread);
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    }
+
+    ReportRecording recording = ReportRecording.open(file);
+    assertThat(recording.getReportCount()).isEqualTo(4 * reports);
+    byte[] data = new byte[64];
+    for (ReplayTransport replay : recording.createTransports(false)) {
+      replay.open();
+      for (int i = 0; i < reports; i++) {
+        assertThat(replay.read(data, 0)).isEqualTo(64);
+        assertThat(data[0]).isEqualTo((byte) i);
+      }
+      assertThat(replay.read(data, 0)).isEqualTo(0);
+      assertThat(replay.isFinished()).isTrue();
+    }
+  }
+
+  @Test
+  void testInvalidFileIsRejected() throws IOException {
+    Path file = Files.write(dir.resolve("invalid.rec"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+    assertThrows(IOException.class, () -> ReportRecording.open(file));
+  }
+
+  @Test
+  void testReplayFeedsRecordedReportsToListeners() throws IOException, InterruptedException {
+    Path file = dir.resolve("session.rec");
+    AnalogKeyboardManager manager = new AnalogKeyboardManager();
+    CountingListener recorded = new CountingListener(10);
+    manager.addListener(
+        recorded, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+
+    try (ReportRecorder recorder = new ReportRecorder(file)) {
+      manager.setRecorder(recorder);
+      AnalogKeyboardDevice keyboard =
+          manager.attach(wooting80he().reportsPerSecond(1000).build()).orElseThrow();
+      keyboard.open();
+      assertThat(recorded.keys.await(5, TimeUnit.SECONDS)).isTrue();
+      manager.detach(keyboard);
+      assertThat(recorded.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    ReportRecording recording = ReportRecording.open(file);
+    assertThat(recording.getReportCount()).isAtLeast(10);
+    AnalogKeyboardManager replayManager = new AnalogKeyboardManager();
+    CountingListener replayed = new CountingListener((int) recording.getReportCount());
+    replayManager.addListener(
+        replayed, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+
+    ReplayTransport transport = recording.createTransports(false).get(0);
+    Optional<AnalogKeyboardDevice> keyboard = replayManager.attach(transport);
+    assertThat(keyboard.isPresent()).isTrue();
+    keyboard.get().open();
+
+    assertThat(replayed.keys.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(replayed.value).isEqualTo(recorded.value);
+    replayManager.detach(keyboard.get());
+    assertThat(replayed.closed.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+}
@@ -0,0 +1,61 @@
+package org.voegl.analogkey4j.testing;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.event.AnalogKeyState;
+import org.voegl.analogkey4j.event.AnalogKeyboardListener;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+
+/**
+ * A listener ignoring all events but counting down a latch for key changes and one for closed
+ * keyboards. Tests extend it to record the events they are interested in.
+ */
+public class LatchListener implements AnalogKeyboardListener {
+  /** Counted down for every key change. */
+  public final CountDownLatch keys;
+
+  /** Counted down for every closed keyboard. */
+  public final CountDownLatch closed;
+
+  /** Constructs a new listener waiting for a single key change and a single closed keyboard. */
+  public LatchListener() {
+    this(1, 1);
+  }
+
+  /**
+   * Constructs a new listener.
+   *
+   * @param keyChanges The number of key changes to wait for.
+   * @param closedKeyboards The number of closed keyboards to wait for.
+   */
+  public LatchListener(int keyChanges, int closedKeyboards) {
+    keys = new CountDownLatch(keyChanges);
+    closed = new CountDownLatch(closedKeyboards);
+  }
+
+  @Override
+  public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+    keys.countDown();
+  }
+
+  @Override
+  public void keyPressed(AnalogKeyboardDevice keyboard, Set<AnalogKeyState> keyStates) {}
+
+  @Override
+  public void keyboardAdded(AnalogKeyboardDevice keyboard) {}
+
+  @Override
+  public void keyboardRemoved(AnalogKeyboardDevice keyboard) {}
+
+  @Override
+  public void keyboardOpened(AnalogKeyboardDevice keyboard) {}
+
+  @Override
+  public void keyboardClosed(AnalogKeyboardDevice keyboard) {
+    closed.countDown();
+  }
+
+  @Override
+  public void keyboardError(AnalogKeyboardDevice keyboard, String message) {}
+}
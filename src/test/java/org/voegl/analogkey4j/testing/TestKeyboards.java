@@ -0,0 +1,25 @@
+package org.voegl.analogkey4j.testing;
+
+import org.voegl.analogkey4j.transport.SyntheticTransport;
+
+/** Synthetic keyboards shared by the tests. */
+public final class TestKeyboards {
+
+  private TestKeyboards() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Creates a builder for a synthetic Wooting 80HE with 64 byte reports. Tests add the reports it
+   * generates and anything else they need.
+   *
+   * @return The builder of the synthetic keyboard.
+   */
+  public static SyntheticTransport.SyntheticTransportBuilder wooting80he() {
+    return SyntheticTransport.builder()
+        .vendorId(0x31e3)
+        .productId(0x1402)
+        .usagePage(0xffffff54)
+        .reportSize(64);
+  }
+}
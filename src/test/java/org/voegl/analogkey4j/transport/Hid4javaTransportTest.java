@@ -0,0 +1,17 @@
+package org.voegl.analogkey4j.transport;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.hid4java.HidDevice;
+import org.junit.jupiter.api.Test;
+
+class Hid4javaTransportTest {
+
+  @Test
+  void testReadsInNativeCode() {
+    Hid4javaTransport transport = new Hid4javaTransport(mock(HidDevice.class));
+
+    assertThat(transport.readsInNativeCode()).isTrue();
+  }
+}
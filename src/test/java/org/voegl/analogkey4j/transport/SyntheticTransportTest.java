@@ -0,0 +1,103 @@
+package org.voegl.analogkey4j.transport;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.Range;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.voegl.analogkey4j.AnalogKeyboardManager;
+import org.voegl.analogkey4j.event.AnalogKeySnapshot;
+import org.voegl.analogkey4j.event.DispatchMode;
+import org.voegl.analogkey4j.event.ListenerOptions;
+import org.voegl.analogkey4j.key.HidKey;
+import org.voegl.analogkey4j.plugins.AnalogKeyboardDevice;
+import org.voegl.analogkey4j.testing.LatchListener;
+import org.voegl.analogkey4j.testing.TestKeyboards;
+
+class SyntheticTransportTest {
+
+  private static final byte[] W_PRESSED = {0x00, 0x1a, (byte) 0xFF};
+
+  private static SyntheticTransport.SyntheticTransportBuilder wooting80he() {
+    return TestKeyboards.wooting80he()
+        .generator(SyntheticTransport.ReportGenerator.cycling(W_PRESSED));
+  }
+
+  /** A listener recording the latest key event until the keyboard is closed. */
+  private static class CountingListener extends LatchListener {
+    volatile float value;
+    volatile long sequence;
+    volatile long age;
+
+    @Override
+    public void keysChanged(AnalogKeyboardDevice keyboard, AnalogKeySnapshot snapshot) {
+      value = snapshot.getValue(HidKey.W);
+      sequence = snapshot.getSequence();
+      age = System.nanoTime() - snapshot.getTimestamp();
+      super.keysChanged(keyboard, snapshot);
+    }
+  }
+
+  @Test
+  void testReadGeneratesReportsAtRate() {
+    SyntheticTransport transport = wooting80he().reportsPerSecond(1000).build();
+    byte[] data = new byte[64];
+    transport.open();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 20; i++) {
+      while (transport.read(data, 20) == 0) {
+        // wait for the next report
+      }
+    }
+
+    assertThat(System.nanoTime() - start).isAtLeast(TimeUnit.MILLISECONDS.toNanos(19));
+    assertThat(data[1]).isEqualTo((byte) 0x1a);
+  }
+
+  @Test
+  void testReadFailsAfterClose() {
+    SyntheticTransport transport = wooting80he().build();
+    transport.open();
+    transport.close();
+
+    assertThat(transport.read(new byte[64], 20)).isEqualTo(-1);
+  }
+
+  @Test
+  void testReadsInJava() {
+    assertThat(wooting80he().build().readsInNativeCode()).isFalse();
+  }
+
+  @Test
+  void testKeyboardReadsSyntheticReports() throws InterruptedException {
+    AnalogKeyboardManager manager = new AnalogKeyboardManager();
+    CountingListener listener = new CountingListener();
+    manager.addListener(
+        listener, ListenerOptions.builder().dispatchMode(DispatchMode.INLINE).build());
+
+    Optional<AnalogKeyboardDevice> keyboard =
+        manager.attach(wooting80he().reportsPerSecond(1000).build());
+    assertThat(keyboard.isPresent()).isTrue();
+    keyboard.get().open();
+
+    assertThat(listener.keys.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(listener.value).isEqualTo(1.0f);
+    assertThat(listener.sequence).isEqualTo(1);
+    assertThat(listener.age).isIn(Range.closed(0L, TimeUnit.SECONDS.toNanos(5)));
+    assertThat(manager.getValue(keyboard.get(), HidKey.W)).isEqualTo(1.0f);
+    assertThat(keyboard.get().getReportSize()).isEqualTo(64);
+
+    manager.detach(keyboard.get());
+    assertThat(listener.closed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(manager.getKeyboards()).isEmpty();
+  }
+
+  @Test
+  void testUnsupportedDeviceIsNotAttached() {
+    AnalogKeyboardManager manager = new AnalogKeyboardManager();
+
+    assertThat(manager.attach(wooting80he().vendorId(0x1234).build()).isPresent()).isFalse();
+  }
+}